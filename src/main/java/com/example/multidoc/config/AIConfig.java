@@ -2,6 +2,7 @@ package com.example.multidoc.config;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import com.example.multidoc.util.TokenBucketRateLimiter;
 import org.springframework.ai.openai.OpenAiChatOptions;
 import org.springframework.ai.openai.api.OpenAiApi;
 import org.springframework.ai.chat.messages.UserMessage;
@@ -28,6 +29,12 @@ public class AIConfig {
     @Value("${spring.ai.openai.base-url}")
     private String baseUrl;
     
+    @Value("${app.llm.requests-per-minute:60}")
+    private int requestsPerMinute;
+    
+    @Value("${app.llm.tokens-per-minute:200000}")
+    private int tokensPerMinute;
+    
     @Bean
     public OpenAiApi openAiApi() {
         return new OpenAiApi(baseUrl, apiKey);
@@ -43,4 +50,12 @@ public class AIConfig {
         
         return new OpenAiChatClient(openAiApi, options);
     }
+    
+    /**
+     * 大模型调用限流器，按每分钟请求数和Token数限制所有AI调用
+     */
+    @Bean
+    public TokenBucketRateLimiter llmRateLimiter() {
+        return new TokenBucketRateLimiter(requestsPerMinute, tokensPerMinute);
+    }
 } 
\ No newline at end of file
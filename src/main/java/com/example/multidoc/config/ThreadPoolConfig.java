@@ -1,46 +1,175 @@
 package com.example.multidoc.config;
 
+import com.example.multidoc.util.ResourceLimiter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Configuration
 public class ThreadPoolConfig {
 
+    private static final Logger logger = LoggerFactory.getLogger(ThreadPoolConfig.class);
+
+    @Value("${app.executor.virtual-threads-enabled:false}")
+    private boolean virtualThreadsEnabled;
+
+    @Value("${app.db.max-concurrency:8}")
+    private int dbMaxConcurrency;
+
+    @Value("${app.disk.max-concurrency:4}")
+    private int diskMaxConcurrency;
+
+    @Value("${app.llm.max-concurrency:4}")
+    private int llmMaxConcurrency;
+
+    @Value("${app.rule-extraction.max-concurrency:3}")
+    private int ruleExtractionMaxConcurrency;
+
+    @Value("${app.word.parse-concurrency:0}")
+    private int wordParseConcurrency;
+
+    @Value("${app.excel.parse-concurrency:0}")
+    private int excelParseConcurrency;
+
+    @Value("${app.lucene.search-parallelism:0}")
+    private int luceneSearchParallelism;
+
+    @Value("${app.executor.queue-capacity:1000}")
+    private int executorQueueCapacity;
+
+    /**
+     * 分析任务执行器，用于分析任务和规则验证
+     * 启用虚拟线程时每个任务使用独立的虚拟线程（需要Java 21及以上），
+     * 并发度由各下游资源的并发限制器控制；否则使用按CPU核心数配置的线程池
+     */
     @Bean
-    public ThreadPoolTaskExecutor analysisTaskExecutor() {
-        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
-        
-        // 获取系统CPU核心数
+    public AsyncTaskExecutor analysisTaskExecutor() {
+        if (virtualThreadsEnabled) {
+            if (Runtime.version().feature() >= 21) {
+                logger.info("分析任务使用虚拟线程执行");
+                return new VirtualThreadTaskExecutor("analysis-task-");
+            }
+            logger.warn("当前Java版本 {} 不支持虚拟线程，分析任务继续使用平台线程池", Runtime.version().feature());
+        }
+
+        // 核心线程数：CPU核心数；最大线程数：CPU核心数的2倍（降低并发）
         int processors = Runtime.getRuntime().availableProcessors();
-        
-        // 核心线程数：CPU核心数
-        executor.setCorePoolSize(processors);
-        
-        // 最大线程数：CPU核心数的2倍（降低并发）
-        executor.setMaxPoolSize(processors * 2);
-        
-        // 队列容量：1000
-        executor.setQueueCapacity(1000);
-        
-        // 线程空闲时间：60秒
+        return boundedExecutor("analysis-task-", processors, processors * 2);
+    }
+
+    /**
+     * 大模型请求线程池，用于并发发送字段分类等AI请求
+     * 线程数即并发上限，实际发送速率由限流器控制
+     */
+    @Bean
+    public ThreadPoolTaskExecutor llmRequestExecutor() {
+        return boundedExecutor("llm-request-", llmMaxConcurrency, llmMaxConcurrency);
+    }
+
+    /**
+     * 规则提取线程池，各分类的规则提取在此并行执行
+     * 线程数即同时进行规则提取的分类数上限
+     */
+    @Bean
+    public ThreadPoolTaskExecutor ruleExtractionExecutor() {
+        return boundedExecutor("rule-extraction-", ruleExtractionMaxConcurrency, ruleExtractionMaxConcurrency);
+    }
+
+    /**
+     * Word文档解析线程池，每个文档在独立的线程上解析和拆分句子
+     * 线程数未配置（0）时使用CPU核心数
+     */
+    @Bean
+    public ThreadPoolTaskExecutor wordParsingExecutor() {
+        int threads = wordParseConcurrency > 0
+                ? wordParseConcurrency
+                : Runtime.getRuntime().availableProcessors();
+        return boundedExecutor("word-parsing-", threads, threads);
+    }
+
+    /**
+     * Excel解析线程池，各工作簿（大文件的各工作表）在独立的线程上读取
+     * 线程数未配置（0）时使用CPU核心数
+     */
+    @Bean
+    public ThreadPoolTaskExecutor excelParsingExecutor() {
+        int threads = excelParseConcurrency > 0
+                ? excelParseConcurrency
+                : Runtime.getRuntime().availableProcessors();
+        return boundedExecutor("excel-parsing-", threads, threads);
+    }
+
+    /**
+     * 创建有界线程池
+     * 队列满时拒绝并向提交方抛出 TaskRejectedException，不在提交线程上执行，
+     * 避免任务落到请求线程或其他资源的线程池上，破坏各类资源的并发隔离
+     */
+    private ThreadPoolTaskExecutor boundedExecutor(String threadNamePrefix, int corePoolSize, int maxPoolSize) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(corePoolSize);
+        executor.setMaxPoolSize(maxPoolSize);
+        executor.setQueueCapacity(executorQueueCapacity);
         executor.setKeepAliveSeconds(60);
-        
-        // 线程名前缀
-        executor.setThreadNamePrefix("analysis-task-");
-        
-        // 拒绝策略：调用者运行策略
-        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
-        
+        executor.setThreadNamePrefix(threadNamePrefix);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+
         // 等待所有任务结束后再关闭线程池
         executor.setWaitForTasksToCompleteOnShutdown(true);
-        
-        // 等待时间：60秒
         executor.setAwaitTerminationSeconds(60);
-        
+
         executor.initialize();
         return executor;
     }
-} 
\ No newline at end of file
+
+    /**
+     * 相关性检索线程池，字段检索是纯CPU计算，按分治方式拆分到各个核心
+     * 并行度未配置（0）时使用CPU核心数
+     */
+    @Bean
+    public ForkJoinPool relevanceSearchPool() {
+        int parallelism = luceneSearchParallelism > 0
+                ? luceneSearchParallelism
+                : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadIndex = new AtomicInteger();
+        ForkJoinPool.ForkJoinWorkerThreadFactory factory = pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("relevance-search-" + threadIndex.incrementAndGet());
+            return thread;
+        };
+        return new ForkJoinPool(parallelism, factory, null, false);
+    }
+
+    /**
+     * 大模型调用并发限制器，限制全局同时进行的大模型请求数
+     */
+    @Bean
+    public ResourceLimiter llmLimiter() {
+        return new ResourceLimiter("llm", llmMaxConcurrency);
+    }
+
+    /**
+     * 数据库并发限制器，许可数应小于连接池大小，为页面请求保留连接
+     */
+    @Bean
+    public ResourceLimiter dbLimiter() {
+        return new ResourceLimiter("db", dbMaxConcurrency);
+    }
+
+    /**
+     * 磁盘并发限制器，限制同时进行的文档读写和解析
+     */
+    @Bean
+    public ResourceLimiter diskLimiter() {
+        return new ResourceLimiter("disk", diskMaxConcurrency);
+    }
+}
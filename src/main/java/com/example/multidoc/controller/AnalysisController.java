@@ -2,13 +2,13 @@ package com.example.multidoc.controller;
 
 import com.example.multidoc.model.AnalysisResult;
 import com.example.multidoc.model.AnalysisTask;
-import com.example.multidoc.model.TaskLog;
 import com.example.multidoc.service.AnalysisService;
 import com.example.multidoc.service.DocumentService;
 import com.example.multidoc.service.TaskService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
@@ -22,7 +22,6 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
-import java.util.stream.Collectors;
 
 @Controller
 @RequestMapping("/")
@@ -39,6 +38,9 @@ public class AnalysisController {
     @Autowired
     private TaskService taskService;
 
+    @Value("${app.task-log.page-size:500}")
+    private int logPageSize;
+
     @GetMapping
     public String index(Model model) {
         List<AnalysisTask> tasks = analysisService.getAllTasks();
@@ -55,20 +57,9 @@ public class AnalysisController {
             // 获取任务进度信息
             Map<String, Object> progress = analysisService.getTaskProgress(id);
             
-            // 获取任务日志并添加到进度信息中
+            // 获取最近的任务日志并添加到进度信息中，更早的日志不随页面加载
             try {
-                List<TaskLog> taskLogs = taskService.getTaskLogs(id);
-                List<Map<String, Object>> formattedLogs = taskLogs.stream()
-                    .map(log -> {
-                        Map<String, Object> formattedLog = new HashMap<>();
-                        formattedLog.put("timestamp", log.getLogTime().toString());
-                        formattedLog.put("step", log.getLogLevel());
-                        formattedLog.put("message", log.getMessage());
-                        formattedLog.put("progress", task.getProgress());
-                        return formattedLog;
-                    })
-                    .collect(Collectors.toList());
-                progress.put("logs", formattedLogs);
+                progress.put("logs", taskService.getLatestTaskLogs(id, logPageSize));
             } catch (Exception e) {
                 logger.warn("获取任务日志失败: {}", e.getMessage());
             }
@@ -116,9 +107,8 @@ public class AnalysisController {
     @PostMapping("/task/{id}/resume")
     public String resumeTask(@PathVariable String id, RedirectAttributes redirectAttributes) {
         try {
+            // 恢复后从上次完成的步骤继续执行
             analysisService.resumeTask(id);
-            // Start the task execution after resuming
-            analysisService.executeAnalysisTask(id);
             redirectAttributes.addFlashAttribute("message", "任务已恢复，正在继续执行");
             return "redirect:/task/" + id;
         } catch (Exception e) {
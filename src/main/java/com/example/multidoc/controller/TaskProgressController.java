@@ -2,66 +2,66 @@ package com.example.multidoc.controller;
 
 import com.example.multidoc.model.AnalysisTask;
 import com.example.multidoc.model.TaskLog;
-import com.example.multidoc.service.AnalysisService;
+import com.example.multidoc.model.TaskLogEntry;
 import com.example.multidoc.service.TaskService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
-import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
-import java.util.stream.Collectors;
 
 @Controller
-@RequestMapping("/task")
 public class TaskProgressController {
 
     @Autowired
     private TaskService taskService;
 
-    @Autowired
-    private AnalysisService analysisService;
+    @Value("${app.task-log.max-page-size:2000}")
+    private int maxLogPageSize;
 
-    @GetMapping("/{id}/progress")
+    @GetMapping("/task/{id}/progress")
     public String showProgress(@PathVariable String id, Model model) {
         AnalysisTask task = taskService.getTaskById(id);
         model.addAttribute("task", task);
         return "task/progress";
     }
 
+    /**
+     * 任务进度及游标之后的新日志
+     * 页面优先订阅 /topic/task/{id} 接收推送，连接不可用时用本接口轮询，
+     * 每次带上上次返回的 cursor，只取增量日志；不带 after 时返回最近的日志。
+     * 单次最多返回 limit 条，hasMore 为 true 时应立即继续拉取
+     */
     @GetMapping("/api/task/{id}/progress")
-    public ResponseEntity<?> getProgress(@PathVariable String id) {
+    public ResponseEntity<?> getProgress(@PathVariable String id,
+                                         @RequestParam(required = false) Long after,
+                                         @RequestParam(defaultValue = "${app.task-log.page-size:500}") int limit) {
         AnalysisTask task = taskService.getTaskById(id);
-        Map<String, Object> progress = analysisService.getTaskProgress(id);
-        
-        // 获取任务日志
-        List<TaskLog> taskLogs = taskService.getTaskLogs(id);
-        
-        // 格式化日志数据
-        List<Map<String, Object>> formattedLogs = taskLogs.stream()
-            .map(log -> {
-                Map<String, Object> formattedLog = new HashMap<>();
-                formattedLog.put("timestamp", log.getLogTime().toString());
-                formattedLog.put("step", log.getLogLevel()); // 使用logLevel作为step
-                formattedLog.put("message", log.getMessage());
-                formattedLog.put("progress", task.getProgress()); // 使用任务当前进度
-                return formattedLog;
-            })
-            .collect(Collectors.toList());
-        
-        return ResponseEntity.ok(Map.of(
-            "overallProgress", progress.get("progress"),
-            "currentStep", progress.get("lastCompletedStep"),
-            "currentStepProgress", task.getProgress(),
-            "currentStepMessage", "当前步骤: " + progress.get("lastCompletedStep"),
-            "status", task.getStatus().name(),
-            "logs", formattedLogs
-        ));
+
+        // 获取游标之后（或最近）的任务日志
+        int pageSize = Math.max(1, Math.min(limit, maxLogPageSize));
+        List<TaskLogEntry> logs = after != null
+            ? taskService.getTaskLogsAfter(id, after, pageSize)
+            : taskService.getLatestTaskLogs(id, pageSize);
+        long cursor = logs.isEmpty() ? (after != null ? after : 0L) : logs.get(logs.size() - 1).getId();
+
+        Map<String, Object> progress = new HashMap<>();
+        progress.put("overallProgress", task.getProgress());
+        progress.put("currentStep", task.getLastCompletedStep());
+        progress.put("currentStepProgress", task.getProgress());
+        progress.put("currentStepMessage", "当前步骤: " + task.getLastCompletedStep());
+        progress.put("status", task.getStatus().name());
+        progress.put("logs", logs);
+        progress.put("cursor", cursor);
+        progress.put("hasMore", after != null && logs.size() == pageSize);
+        return ResponseEntity.ok(progress);
     }
 
     // 进度响应对象
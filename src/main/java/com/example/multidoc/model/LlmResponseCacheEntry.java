@@ -0,0 +1,93 @@
+package com.example.multidoc.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 大模型响应缓存记录
+ * 以模型、温度和提示内容的哈希为主键，保存对应的模型响应
+ */
+@Entity
+@Table(name = "llm_response_cache")
+public class LlmResponseCacheEntry {
+    
+    @Id
+    @Column(name = "cache_key", length = 64)
+    private String cacheKey;
+    
+    @Column(name = "model", length = 100)
+    private String model;
+    
+    @Column(name = "response", columnDefinition = "LONGTEXT", nullable = false)
+    private String response;
+    
+    @Column(name = "created_time", nullable = false)
+    private LocalDateTime createdTime;
+    
+    @Column(name = "last_access_time")
+    private LocalDateTime lastAccessTime;
+    
+    // Default constructor
+    public LlmResponseCacheEntry() {
+    }
+    
+    // Constructor with parameters
+    public LlmResponseCacheEntry(String cacheKey, String model, String response) {
+        this.cacheKey = cacheKey;
+        this.model = model;
+        this.response = response;
+        this.createdTime = LocalDateTime.now();
+        this.lastAccessTime = this.createdTime;
+    }
+    
+    // Getters and Setters
+    
+    public String getCacheKey() {
+        return cacheKey;
+    }
+    
+    public void setCacheKey(String cacheKey) {
+        this.cacheKey = cacheKey;
+    }
+    
+    public String getModel() {
+        return model;
+    }
+    
+    public void setModel(String model) {
+        this.model = model;
+    }
+    
+    public String getResponse() {
+        return response;
+    }
+    
+    public void setResponse(String response) {
+        this.response = response;
+    }
+    
+    public LocalDateTime getCreatedTime() {
+        return createdTime;
+    }
+    
+    public void setCreatedTime(LocalDateTime createdTime) {
+        this.createdTime = createdTime;
+    }
+    
+    public LocalDateTime getLastAccessTime() {
+        return lastAccessTime;
+    }
+    
+    public void setLastAccessTime(LocalDateTime lastAccessTime) {
+        this.lastAccessTime = lastAccessTime;
+    }
+    
+    @Override
+    public String toString() {
+        return "LlmResponseCacheEntry{" +
+                "cacheKey='" + cacheKey + '\'' +
+                ", model='" + model + '\'' +
+                ", createdTime=" + createdTime +
+                '}';
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.multidoc.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 任务断点记录
+ * 记录某个步骤内已完成的处理单元（如规则提取的分类、字段分类的批次），
+ * 恢复任务时跳过已完成的单元
+ */
+@Entity
+@Table(name = "task_checkpoints", uniqueConstraints = {
+    @UniqueConstraint(columnNames = {"task_id", "step", "unit_key"})
+})
+public class TaskCheckpoint {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @ManyToOne
+    @JoinColumn(name = "task_id", nullable = false)
+    private AnalysisTask task;
+    
+    @Column(name = "step", nullable = false, length = 50)
+    private String step;
+    
+    @Column(name = "unit_key", nullable = false)
+    private String unitKey;
+    
+    @Column(name = "payload", columnDefinition = "LONGTEXT")
+    private String payload;
+    
+    @Column(name = "completed_time")
+    private LocalDateTime completedTime;
+    
+    // Default constructor
+    public TaskCheckpoint() {
+        this.completedTime = LocalDateTime.now();
+    }
+    
+    // Constructor with parameters
+    public TaskCheckpoint(AnalysisTask task, String step, String unitKey, String payload) {
+        this.task = task;
+        this.step = step;
+        this.unitKey = unitKey;
+        this.payload = payload;
+        this.completedTime = LocalDateTime.now();
+    }
+    
+    // Getters and Setters
+    
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public AnalysisTask getTask() {
+        return task;
+    }
+    
+    public void setTask(AnalysisTask task) {
+        this.task = task;
+    }
+    
+    public String getStep() {
+        return step;
+    }
+    
+    public void setStep(String step) {
+        this.step = step;
+    }
+    
+    public String getUnitKey() {
+        return unitKey;
+    }
+    
+    public void setUnitKey(String unitKey) {
+        this.unitKey = unitKey;
+    }
+    
+    public String getPayload() {
+        return payload;
+    }
+    
+    public void setPayload(String payload) {
+        this.payload = payload;
+    }
+    
+    public LocalDateTime getCompletedTime() {
+        return completedTime;
+    }
+    
+    public void setCompletedTime(LocalDateTime completedTime) {
+        this.completedTime = completedTime;
+    }
+    
+    @Override
+    public String toString() {
+        return "TaskCheckpoint{" +
+                "id=" + id +
+                ", task=" + (task != null ? task.getId() : "null") +
+                ", step='" + step + '\'' +
+                ", unitKey='" + unitKey + '\'' +
+                ", completedTime=" + completedTime +
+                '}';
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.multidoc.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * 任务日志的展示数据
+ * 日志接口只查询这几列，不加载 TaskLog 实体及其关联的任务；id 同时作为增量拉取的游标
+ */
+public class TaskLogEntry {
+
+    private final Long id;
+    private final String timestamp;
+    private final String step;
+    private final String message;
+
+    public TaskLogEntry(Long id, LocalDateTime logTime, String logLevel, String message) {
+        this.id = id;
+        this.timestamp = logTime != null ? logTime.toString() : "";
+        this.step = logLevel; // 使用logLevel作为step
+        this.message = message;
+    }
+
+    public static TaskLogEntry from(TaskLog log) {
+        return new TaskLogEntry(log.getId(), log.getLogTime(), log.getLogLevel(), log.getMessage());
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getTimestamp() {
+        return timestamp;
+    }
+
+    public String getStep() {
+        return step;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
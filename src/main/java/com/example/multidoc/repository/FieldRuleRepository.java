@@ -16,4 +16,7 @@ public interface FieldRuleRepository extends JpaRepository<FieldRule, Long> {
 
     @Transactional
     void deleteByTask(AnalysisTask task);
+
+    @Transactional
+    void deleteByTaskAndCategory(AnalysisTask task, String category);
 } 
\ No newline at end of file
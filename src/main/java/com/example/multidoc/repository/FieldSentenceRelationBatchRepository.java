@@ -0,0 +1,80 @@
+package com.example.multidoc.repository;
+
+import com.example.multidoc.model.FieldSentenceRelation;
+import com.example.multidoc.util.JdbcBatchWriter;
+import com.example.multidoc.util.ResourceLimiter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 字段与句子关联的批量写入
+ * 直接使用JDBC批量插入，不经过持久化上下文，写入量再大内存占用也保持平稳
+ * 每批只在执行SQL期间占用数据库许可
+ */
+@Repository
+public class FieldSentenceRelationBatchRepository {
+
+    private static final Logger logger = LoggerFactory.getLogger(FieldSentenceRelationBatchRepository.class);
+
+    private static final String INSERT_SQL = "INSERT INTO field_sentence_relation "
+            + "(field_id, sentence_id, field_name, field_type, field_description, sentence_content, "
+            + "source_file, relevance_score, created_time) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String DELETE_BY_FIELD_IDS_SQL = "DELETE FROM field_sentence_relation WHERE field_id IN (%s)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    @Qualifier("dbLimiter")
+    private ResourceLimiter dbLimiter;
+
+    @Value("${app.jdbc.batch-size:500}")
+    private int batchSize;
+
+    /**
+     * 打开一个批量写入器，调用方逐条添加关联，关闭时写入剩余关联
+     */
+    public JdbcBatchWriter<FieldSentenceRelation> openWriter() {
+        return new JdbcBatchWriter<>(batchSize, this::insertBatch);
+    }
+
+    /**
+     * 按批次删除指定字段已有的关联，用于重新计算相关性前清理旧数据
+     * @return 删除的关联数
+     */
+    public int deleteByFieldIds(List<Long> fieldIds) {
+        int deleted = 0;
+        for (int i = 0; i < fieldIds.size(); i += batchSize) {
+            List<Long> chunk = fieldIds.subList(i, Math.min(i + batchSize, fieldIds.size()));
+            String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+            deleted += dbLimiter.call(() -> jdbcTemplate.update(String.format(DELETE_BY_FIELD_IDS_SQL, placeholders), chunk.toArray()));
+        }
+        return deleted;
+    }
+
+    private void insertBatch(List<FieldSentenceRelation> batch) {
+        dbLimiter.call(() -> jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), (ps, relation) -> {
+            ps.setLong(1, relation.getFieldId());
+            ps.setLong(2, relation.getSentenceId());
+            ps.setString(3, relation.getFieldName());
+            ps.setString(4, relation.getFieldType());
+            ps.setString(5, relation.getFieldDescription());
+            ps.setString(6, relation.getSentenceContent());
+            ps.setString(7, relation.getSourceFile());
+            ps.setFloat(8, relation.getRelevanceScore() != null ? relation.getRelevanceScore() : 0.0f);
+            ps.setTimestamp(9, Timestamp.valueOf(relation.getCreatedTime()));
+        }));
+        logger.debug("批量写入 {} 条字段与句子关联", batch.size());
+    }
+}
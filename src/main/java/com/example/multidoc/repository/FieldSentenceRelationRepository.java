@@ -1,5 +1,6 @@
 package com.example.multidoc.repository;
 
+import com.example.multidoc.model.AnalysisTask;
 import com.example.multidoc.model.FieldSentenceRelation;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
@@ -19,6 +20,10 @@ public interface FieldSentenceRelationRepository extends JpaRepository<FieldSent
     @Query("SELECT r FROM FieldSentenceRelation r WHERE r.fieldId = :fieldId ORDER BY r.relevanceScore DESC")
     List<FieldSentenceRelation> findByFieldIdOrderByRelevanceScoreDesc(@Param("fieldId") Long fieldId);
     
+    @Query("SELECT r FROM FieldSentenceRelation r WHERE r.fieldId IN (SELECT f.id FROM ExcelField f WHERE f.task = :task) " +
+           "ORDER BY r.fieldId, r.relevanceScore DESC")
+    List<FieldSentenceRelation> findByTaskOrderByFieldIdAndRelevanceScoreDesc(@Param("task") AnalysisTask task);
+    
     @Query("SELECT r FROM FieldSentenceRelation r WHERE r.sentenceId = :sentenceId ORDER BY r.relevanceScore DESC")
     List<FieldSentenceRelation> findBySentenceIdOrderByRelevanceScoreDesc(@Param("sentenceId") Long sentenceId);
     
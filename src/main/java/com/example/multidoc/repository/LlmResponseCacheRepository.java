@@ -0,0 +1,27 @@
+package com.example.multidoc.repository;
+
+import com.example.multidoc.model.LlmResponseCacheEntry;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface LlmResponseCacheRepository extends JpaRepository<LlmResponseCacheEntry, String> {
+    
+    @Transactional
+    long deleteByCreatedTimeBefore(LocalDateTime time);
+    
+    /**
+     * 按最近访问时间倒序查询访问时间，只取时间列，不加载响应内容
+     */
+    @Query("SELECT e.lastAccessTime FROM LlmResponseCacheEntry e ORDER BY e.lastAccessTime DESC")
+    List<LocalDateTime> findLastAccessTimes(Pageable pageable);
+    
+    @Transactional
+    long deleteByLastAccessTimeBefore(LocalDateTime time);
+}
@@ -0,0 +1,18 @@
+package com.example.multidoc.repository;
+
+import com.example.multidoc.model.AnalysisTask;
+import com.example.multidoc.model.TaskCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Repository
+public interface TaskCheckpointRepository extends JpaRepository<TaskCheckpoint, Long> {
+    
+    List<TaskCheckpoint> findByTaskAndStep(AnalysisTask task, String step);
+    
+    @Transactional
+    void deleteByTaskAndStep(AnalysisTask task, String step);
+}
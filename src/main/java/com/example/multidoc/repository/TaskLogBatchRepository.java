@@ -0,0 +1,71 @@
+package com.example.multidoc.repository;
+
+import com.example.multidoc.model.TaskLog;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 任务日志批量写入
+ * TaskLog 使用自增主键，Hibernate 无法对其插入做批处理，
+ * 因此绕过JPA直接使用JDBC批量插入，由 TaskLogWriter 在后台线程中按批调用
+ */
+@Repository
+public class TaskLogBatchRepository {
+
+    private static final Logger logger = LoggerFactory.getLogger(TaskLogBatchRepository.class);
+
+    private static final String INSERT_SQL = "INSERT INTO task_logs "
+            + "(task_id, log_time, log_level, message) "
+            + "VALUES (?, ?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * 批量保存日志，并把生成的自增ID回填到日志对象上（推送增量日志时作为游标）
+     */
+    public void insertBatch(List<TaskLog> batch) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(
+            connection -> connection.prepareStatement(INSERT_SQL, new String[]{"id"}),
+            new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    TaskLog log = batch.get(i);
+                    ps.setString(1, log.getTask().getId());
+                    ps.setTimestamp(2, Timestamp.valueOf(log.getLogTime()));
+                    ps.setString(3, log.getLogLevel());
+                    ps.setString(4, log.getMessage());
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return batch.size();
+                }
+            },
+            keyHolder);
+
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        if (keys.size() == batch.size()) {
+            for (int i = 0; i < batch.size(); i++) {
+                Object key = keys.get(i).values().iterator().next();
+                batch.get(i).setId(((Number) key).longValue());
+            }
+        } else {
+            logger.warn("批量写入任务日志未返回全部ID: {}/{}", keys.size(), batch.size());
+        }
+        logger.debug("批量写入 {} 条任务日志", batch.size());
+    }
+}
@@ -2,6 +2,8 @@ package com.example.multidoc.repository;
 
 import com.example.multidoc.model.AnalysisTask;
 import com.example.multidoc.model.TaskLog;
+import com.example.multidoc.model.TaskLogEntry;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -20,8 +22,19 @@ public interface TaskLogRepository extends JpaRepository<TaskLog, Long> {
     @Query("SELECT t FROM TaskLog t WHERE t.task = :task AND t.logLevel = :logLevel ORDER BY t.logTime DESC")
     List<TaskLog> findByTaskAndLogLevelOrderByLogTimeDesc(@Param("task") AnalysisTask task, @Param("logLevel") String logLevel);
     
-    @Query("SELECT t FROM TaskLog t WHERE t.task.id = :taskId ORDER BY t.logTime ASC")
-    List<TaskLog> findByTaskIdOrderByTimestampAsc(@Param("taskId") String taskId);
+    /**
+     * 按ID游标分页：ID大于 afterId 的日志，按写入顺序，条数由 pageable 限制
+     */
+    @Query("SELECT new com.example.multidoc.model.TaskLogEntry(t.id, t.logTime, t.logLevel, t.message) "
+            + "FROM TaskLog t WHERE t.task.id = :taskId AND t.id > :afterId ORDER BY t.id ASC")
+    List<TaskLogEntry> findEntriesAfter(@Param("taskId") String taskId, @Param("afterId") Long afterId, Pageable pageable);
+
+    /**
+     * 最近的日志，按ID倒序，条数由 pageable 限制
+     */
+    @Query("SELECT new com.example.multidoc.model.TaskLogEntry(t.id, t.logTime, t.logLevel, t.message) "
+            + "FROM TaskLog t WHERE t.task.id = :taskId ORDER BY t.id DESC")
+    List<TaskLogEntry> findLatestEntries(@Param("taskId") String taskId, Pageable pageable);
     
     void deleteByTask(AnalysisTask task);
 } 
\ No newline at end of file
@@ -0,0 +1,68 @@
+package com.example.multidoc.repository;
+
+import com.example.multidoc.model.WordSentence;
+import com.example.multidoc.util.JdbcBatchWriter;
+import com.example.multidoc.util.ResourceLimiter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * 句子批量写入
+ * WordSentence 使用自增主键，Hibernate 无法对其插入做批处理，
+ * 因此绕过JPA直接使用JDBC批量插入（配合 rewriteBatchedStatements 合并为多行插入）
+ * 每批只在执行SQL期间占用数据库许可
+ */
+@Repository
+public class WordSentenceBatchRepository {
+
+    private static final Logger logger = LoggerFactory.getLogger(WordSentenceBatchRepository.class);
+
+    private static final String INSERT_SQL = "INSERT INTO word_sentences "
+            + "(task_id, sentence_index, content, source_file, start_position, end_position) "
+            + "VALUES (?, ?, ?, ?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    @Qualifier("dbLimiter")
+    private ResourceLimiter dbLimiter;
+
+    @Value("${app.jdbc.batch-size:500}")
+    private int batchSize;
+
+    /**
+     * 打开一个批量写入器，调用方逐条添加句子，关闭时写入剩余句子
+     */
+    public JdbcBatchWriter<WordSentence> openWriter() {
+        return new JdbcBatchWriter<>(batchSize, this::insertBatch);
+    }
+
+    /**
+     * 批量保存句子
+     */
+    public void saveAll(List<WordSentence> sentences) {
+        try (JdbcBatchWriter<WordSentence> writer = openWriter()) {
+            sentences.forEach(writer::add);
+        }
+    }
+
+    private void insertBatch(List<WordSentence> batch) {
+        dbLimiter.call(() -> jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), (ps, sentence) -> {
+            ps.setString(1, sentence.getTask().getId());
+            ps.setInt(2, sentence.getSentenceIndex());
+            ps.setString(3, sentence.getContent());
+            ps.setString(4, sentence.getSourceFile());
+            ps.setInt(5, sentence.getStartPosition());
+            ps.setInt(6, sentence.getEndPosition());
+        }));
+        logger.debug("批量写入 {} 个句子", batch.size());
+    }
+}
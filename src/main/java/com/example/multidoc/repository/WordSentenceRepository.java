@@ -13,6 +13,8 @@ import java.util.List;
 public interface WordSentenceRepository extends JpaRepository<WordSentence, Long> {
 
     List<WordSentence> findByTask(AnalysisTask task);
+
+    long countByTask(AnalysisTask task);
     
     void deleteByTask(AnalysisTask task);
     
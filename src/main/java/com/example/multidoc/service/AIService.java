@@ -2,6 +2,9 @@ package com.example.multidoc.service;
 
 import com.example.multidoc.model.ExcelField;
 import com.example.multidoc.model.FieldRule;
+import com.example.multidoc.util.IncrementalJsonParser;
+import com.example.multidoc.util.ResourceLimiter;
+import com.example.multidoc.util.TokenBucketRateLimiter;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
@@ -14,16 +17,39 @@ import org.springframework.ai.chat.messages.Message;
 import org.springframework.ai.chat.messages.SystemMessage;
 import org.springframework.ai.chat.messages.UserMessage;
 import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.openai.api.OpenAiApi;
+import org.springframework.ai.openai.api.OpenAiApi.ChatCompletionChunk;
+import org.springframework.ai.openai.api.OpenAiApi.ChatCompletionFinishReason;
+import org.springframework.ai.openai.api.OpenAiApi.ChatCompletionMessage;
+import org.springframework.ai.openai.api.OpenAiApi.ChatCompletionRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiConsumer;
 
 @Service
@@ -37,11 +63,52 @@ public class AIService {
     @Autowired
     private ObjectMapper objectMapper;
     
+    @Autowired
+    private TokenBucketRateLimiter llmRateLimiter;
+    
+    @Autowired
+    @Qualifier("llmRequestExecutor")
+    private Executor llmRequestExecutor;
+    
+    @Autowired
+    private LlmResponseCache responseCache;
+    
+    @Autowired
+    @Qualifier("llmLimiter")
+    private ResourceLimiter llmLimiter;
+    
+    @Value("${spring.ai.openai.chat.model}")
+    private String model;
+    
+    @Value("${spring.ai.openai.chat.temperature}")
+    private Double temperature;
+    
+    @Autowired
+    private OpenAiApi openAiApi;
+    
+    @Value("${spring.ai.openai.chat.max-tokens:8000}")
+    private Integer maxTokens;
+    
+    @Value("${app.llm.streaming.enabled:false}")
+    private boolean streamingEnabled;
+    
+    @Value("${app.llm.streaming.idle-timeout-seconds:60}")
+    private long streamingIdleTimeoutSeconds;
+    
+    // 流式调用统计
+    private final AtomicLong streamedRequests = new AtomicLong();
+    private final AtomicLong totalTimeToFirstTokenMs = new AtomicLong();
+    private final AtomicLong totalStreamedTokens = new AtomicLong();
+    private final AtomicLong totalGenerationMs = new AtomicLong();
+    
     @Value("${app.field-batch-size:100}")
     private int fieldBatchSize;
     
     @Value("${app.batch-interval-ms:30000}")
     private int batchIntervalMs;
+    
+    @Value("${app.categorization.concurrent-enabled:false}")
+    private boolean concurrentCategorizationEnabled;
 
 
     
@@ -119,6 +186,14 @@ public class AIService {
      * 执行提示并获取响应
      */
     public String executePrompt(String systemPrompt, String userPrompt) {
+        // 相同模型、温度和提示的请求直接返回缓存的响应
+        String cacheKey = responseCache.buildKey(model, temperature, systemPrompt, userPrompt);
+        Optional<String> cached = responseCache.get(cacheKey);
+        if (cached.isPresent()) {
+            logger.info("命中大模型响应缓存，跳过AI服务调用，缓存统计: {}", responseCache.getStatistics());
+            return cached.get();
+        }
+        
         int maxRetries = 5;
         long initialDelay = 5000; // 5秒
         long maxDelay = 60000; // 60秒
@@ -129,18 +204,14 @@ public class AIService {
                 logger.debug("调用AI服务 (尝试 {}/{}), 系统提示长度: {}, 用户提示长度: {}", 
                     attempt, maxRetries, systemPrompt.length(), userPrompt.length());
                 
-                List<Message> messages = new ArrayList<>();
-                messages.add(new SystemMessage(systemPrompt));
-                messages.add(new UserMessage(userPrompt));
-                
-                Prompt prompt = new Prompt(messages);
-                ChatResponse response = chatClient.call(prompt);
-                
-                if (response == null || response.getResult() == null || response.getResult().getOutput() == null) {
-                    throw new RuntimeException("AI服务返回空响应");
-                }
+                // 按每分钟请求数和Token数限流
+                llmRateLimiter.acquire(TokenBucketRateLimiter.estimateTokens(systemPrompt)
+                        + TokenBucketRateLimiter.estimateTokens(userPrompt));
                 
-                String content = response.getResult().getOutput().getContent();
+                // 限制全局同时进行的大模型请求数
+                String content = llmLimiter.call(() -> streamingEnabled
+                    ? executeStreamingPrompt(systemPrompt, userPrompt)
+                    : executeBlockingPrompt(systemPrompt, userPrompt));
                 
                 if (content == null || content.trim().isEmpty()) {
                     throw new RuntimeException("AI服务返回空内容");
@@ -199,7 +270,13 @@ public class AIService {
                 }
                 
                 logger.debug("AI服务调用成功，返回内容长度: {}", content.length());
+                if (isCacheable(userPrompt, content)) {
+                    responseCache.put(cacheKey, model, content);
+                }
                 return content;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("等待限流许可时中断", e);
             } catch (Exception e) {
                 String errorMessage = e.getMessage();
                 boolean shouldRetry = true;
@@ -249,6 +326,127 @@ public class AIService {
     }
 
 
+    /**
+     * 以阻塞方式执行提示
+     */
+    private String executeBlockingPrompt(String systemPrompt, String userPrompt) {
+        List<Message> messages = new ArrayList<>();
+        messages.add(new SystemMessage(systemPrompt));
+        messages.add(new UserMessage(userPrompt));
+        
+        Prompt prompt = new Prompt(messages);
+        ChatResponse response = chatClient.call(prompt);
+        
+        if (response == null || response.getResult() == null || response.getResult().getOutput() == null) {
+            throw new RuntimeException("AI服务返回空响应");
+        }
+        
+        return response.getResult().getOutput().getContent();
+    }
+    
+    /**
+     * 以流式方式执行提示
+     * 要求返回JSON的请求在接收过程中增量校验，格式错误或达到最大Token数时立即中止；
+     * 超过空闲超时时间未收到新内容同样中止，不再等待完整的读取超时
+     */
+    private String executeStreamingPrompt(String systemPrompt, String userPrompt) {
+        List<ChatCompletionMessage> messages = List.of(
+            new ChatCompletionMessage(systemPrompt, ChatCompletionMessage.Role.SYSTEM),
+            new ChatCompletionMessage(userPrompt, ChatCompletionMessage.Role.USER));
+        ChatCompletionRequest request = new ChatCompletionRequest(messages, model, null, null, maxTokens, null,
+            null, null, null, null, true, temperature != null ? temperature.floatValue() : null, null, null, null, null);
+        
+        boolean expectJson = userPrompt.contains("JSON");
+        IncrementalJsonParser jsonParser = new IncrementalJsonParser();
+        StringBuilder content = new StringBuilder();
+        AtomicLong firstTokenNanos = new AtomicLong();
+        long startNanos = System.nanoTime();
+        
+        openAiApi.chatCompletionStream(request)
+            .timeout(Duration.ofSeconds(streamingIdleTimeoutSeconds))
+            .doOnNext(chunk -> {
+                if (chunk.choices() == null || chunk.choices().isEmpty()) {
+                    return;
+                }
+                ChatCompletionChunk.ChunkChoice choice = chunk.choices().get(0);
+                String delta = choice.delta() != null ? choice.delta().content() : null;
+                if (delta != null && !delta.isEmpty()) {
+                    firstTokenNanos.compareAndSet(0, System.nanoTime());
+                    content.append(delta);
+                    if (expectJson) {
+                        try {
+                            jsonParser.feed(delta);
+                        } catch (IOException e) {
+                            throw new RuntimeException("AI服务返回的JSON格式错误: " + e.getMessage(), e);
+                        }
+                    }
+                }
+                if (choice.finishReason() == ChatCompletionFinishReason.LENGTH) {
+                    throw new RuntimeException("AI服务返回的内容被截断: 已达到最大Token数 " + maxTokens);
+                }
+            })
+            .onErrorMap(TimeoutException.class, e -> new RuntimeException(
+                String.format("AI服务流式响应超时: %d 秒内未收到新内容", streamingIdleTimeoutSeconds), e))
+            .blockLast();
+        
+        if (expectJson && jsonParser.isStarted() && !jsonParser.isComplete()) {
+            throw new RuntimeException("AI服务返回的内容被截断: JSON未完整结束");
+        }
+        String result = content.toString();
+        // 一个流式分块可能包含多个Token，按生成内容估算Token数，与限流器的估算方式一致
+        recordStreamingMetrics(startNanos, firstTokenNanos.get(), TokenBucketRateLimiter.estimateTokens(result));
+        return result;
+    }
+    
+    private void recordStreamingMetrics(long startNanos, long firstTokenNanos, int tokens) {
+        long endNanos = System.nanoTime();
+        if (firstTokenNanos == 0) {
+            firstTokenNanos = endNanos;
+        }
+        long timeToFirstTokenMs = TimeUnit.NANOSECONDS.toMillis(firstTokenNanos - startNanos);
+        long generationMs = TimeUnit.NANOSECONDS.toMillis(endNanos - firstTokenNanos);
+        
+        streamedRequests.incrementAndGet();
+        totalTimeToFirstTokenMs.addAndGet(timeToFirstTokenMs);
+        totalStreamedTokens.addAndGet(tokens);
+        totalGenerationMs.addAndGet(generationMs);
+        
+        logger.info("流式调用完成，首Token耗时: {} 毫秒，生成约 {} 个Token（估算），速度: {} Token/秒",
+            timeToFirstTokenMs, tokens, String.format("%.1f", tokensPerSecond(tokens, generationMs)));
+    }
+    
+    private static double tokensPerSecond(long tokens, long millis) {
+        return millis > 0 ? tokens * 1000.0 / millis : 0;
+    }
+    
+    /**
+     * 获取流式调用统计：请求数、平均首Token耗时和平均生成速度（按生成内容估算的Token数计算）
+     */
+    public Map<String, Object> getStreamingStatistics() {
+        long requests = streamedRequests.get();
+        Map<String, Object> statistics = new HashMap<>();
+        statistics.put("requests", requests);
+        statistics.put("averageTimeToFirstTokenMs", requests > 0 ? totalTimeToFirstTokenMs.get() / requests : 0);
+        statistics.put("tokensPerSecond", tokensPerSecond(totalStreamedTokens.get(), totalGenerationMs.get()));
+        return statistics;
+    }
+    
+    /**
+     * 判断响应是否可以缓存
+     * 要求返回JSON的请求只缓存可解析的响应，避免解析失败后重试时反复命中同一错误响应
+     */
+    private boolean isCacheable(String userPrompt, String content) {
+        if (!userPrompt.contains("JSON")) {
+            return true;
+        }
+        try {
+            objectMapper.readTree(content);
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
     /**
      * 批量对字段进行分类，支持大量字段的批次处理
      * @param fields 需要分类的字段列表
@@ -265,9 +463,25 @@ public class AIService {
      * @return 包含所有字段分类的JSON结果
      */
     public JsonNode categorizeFields(List<ExcelField> fields, BiConsumer<Integer, Integer> progressCallback) {
+        return categorizeFields(fields, progressCallback, Collections.emptyMap(), null);
+    }
+
+    /**
+     * 批量对字段进行分类，支持按批次断点续做
+     * 批次由其包含的字段内容确定唯一标识，已有断点结果的批次直接复用，不再调用大模型
+     * @param fields 需要分类的字段列表
+     * @param progressCallback 进度回调函数，参数为当前批次和总批次数
+     * @param completedBatches 已完成批次的分类结果，键为批次标识
+     * @param batchCallback 批次完成回调函数，参数为批次标识和该批次的分类结果（可以为null）
+     * @return 包含所有字段分类的JSON结果
+     */
+    public JsonNode categorizeFields(List<ExcelField> fields, BiConsumer<Integer, Integer> progressCallback,
+                                     Map<String, JsonNode> completedBatches,
+                                     BiConsumer<String, JsonNode> batchCallback) {
         // 如果字段数量较少，直接处理
         if (fields.size() <= fieldBatchSize) {
-            JsonNode result = categorizeSingleBatch(fields, null);
+            JsonNode result = categorizeBatchWithCheckpoint(fields, null, batchKey(fields),
+                completedBatches, batchCallback);
             if (progressCallback != null) {
                 progressCallback.accept(1, 1);
             }
@@ -275,6 +489,11 @@ public class AIService {
         }
         
         int totalBatches = (int)Math.ceil((double)fields.size()/fieldBatchSize);
+        if (concurrentCategorizationEnabled) {
+            return categorizeFieldsConcurrently(fields, totalBatches, progressCallback,
+                completedBatches, batchCallback);
+        }
+        
         logger.info("字段数量较大({}个)，启用批次处理，批次大小: {}, 批次间隔: {}毫秒, 总批次: {}", 
             fields.size(), fieldBatchSize, batchIntervalMs, totalBatches);
         
@@ -288,12 +507,15 @@ public class AIService {
             int end = Math.min(i + fieldBatchSize, fields.size());
             List<ExcelField> batch = fields.subList(i, end);
             int currentBatch = (i/fieldBatchSize) + 1;
+            String batchKey = batchKey(batch);
+            boolean reused = completedBatches.containsKey(batchKey);
             
             logger.info("处理批次 {}/{}, 字段数: {}", 
                        currentBatch, totalBatches, batch.size());
             
             // 将当前批次的字段与已有的分类信息一起传递给AI
-            JsonNode batchResult = categorizeSingleBatch(batch, accumulatedResult);
+            JsonNode batchResult = categorizeBatchWithCheckpoint(batch, accumulatedResult, batchKey,
+                completedBatches, batchCallback);
             
             // 合并新的分类结果到累积结果中
             updateAccumulatedResult(accumulatedResult, batchResult);
@@ -303,8 +525,8 @@ public class AIService {
                 progressCallback.accept(currentBatch, totalBatches);
             }
             
-            // 添加批次间延迟，避免过快调用大模型
-            if (i + fieldBatchSize < fields.size()) {
+            // 添加批次间延迟，避免过快调用大模型（复用断点结果的批次无需等待）
+            if (!reused && i + fieldBatchSize < fields.size()) {
                 try {
                     logger.info("批次处理完成，等待 {} 毫秒后处理下一批次...", batchIntervalMs);
                     Thread.sleep(batchIntervalMs);
@@ -319,6 +541,120 @@ public class AIService {
         return accumulatedResult;
     }
 
+    /**
+     * 并发模式的批量字段分类
+     * 各批次独立分类并通过线程池并发发送，发送速率由限流器控制；
+     * 全部完成后按批次顺序依次合并，保证合并结果与完成先后无关
+     * @param fields 需要分类的字段列表
+     * @param totalBatches 总批次数
+     * @param progressCallback 进度回调函数，参数为已完成批次数和总批次数
+     * @param completedBatches 已完成批次的分类结果，键为批次标识
+     * @param batchCallback 批次完成回调函数（可以为null）
+     * @return 包含所有字段分类的JSON结果
+     */
+    private JsonNode categorizeFieldsConcurrently(List<ExcelField> fields, int totalBatches,
+                                                  BiConsumer<Integer, Integer> progressCallback,
+                                                  Map<String, JsonNode> completedBatches,
+                                                  BiConsumer<String, JsonNode> batchCallback) {
+        logger.info("字段数量较大({}个)，启用并发批次处理，批次大小: {}, 总批次: {}",
+            fields.size(), fieldBatchSize, totalBatches);
+        
+        AtomicInteger finishedBatches = new AtomicInteger(0);
+        // 第一个失败批次的异常；CompletableFuture.cancel 不会中断已在执行的任务，
+        // 各批次在调用大模型前检查该标记，尚未开始的批次直接跳过
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<CompletableFuture<JsonNode>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < fields.size(); i += fieldBatchSize) {
+                List<ExcelField> batch = fields.subList(i, Math.min(i + fieldBatchSize, fields.size()));
+                int batchNumber = (i / fieldBatchSize) + 1;
+                
+                futures.add(CompletableFuture.supplyAsync(() -> {
+                    if (failure.get() != null) {
+                        throw new RuntimeException("其他批次分类失败，跳过批次 " + batchNumber);
+                    }
+                    try {
+                        logger.info("并发处理批次 {}/{}, 字段数: {}", batchNumber, totalBatches, batch.size());
+                        JsonNode batchResult = categorizeBatchWithCheckpoint(batch, null, batchKey(batch),
+                            completedBatches, batchCallback);
+                        
+                        // 报告进度，回调串行执行
+                        int completed = finishedBatches.incrementAndGet();
+                        if (progressCallback != null) {
+                            synchronized (progressCallback) {
+                                progressCallback.accept(completed, totalBatches);
+                            }
+                        }
+                        return batchResult;
+                    } catch (RuntimeException e) {
+                        failure.compareAndSet(null, e);
+                        throw e;
+                    }
+                }, llmRequestExecutor));
+            }
+        } catch (RejectedExecutionException e) {
+            // 线程池已满，已提交的批次不再调用大模型
+            failure.compareAndSet(null, e);
+            throw e;
+        }
+        
+        // 按批次顺序合并结果
+        ObjectNode accumulatedResult = objectMapper.createObjectNode();
+        accumulatedResult.set("categories", objectMapper.createArrayNode());
+        try {
+            for (CompletableFuture<JsonNode> future : futures) {
+                updateAccumulatedResult(accumulatedResult, future.join());
+            }
+        } catch (CompletionException e) {
+            // 报告最先失败的批次，而不是因此被跳过的批次
+            Throwable cause = failure.get() != null ? failure.get() : (e.getCause() != null ? e.getCause() : e);
+            logger.error("并发字段分类失败", cause);
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new RuntimeException("并发字段分类失败: " + cause.getMessage(), cause);
+        }
+        
+        return accumulatedResult;
+    }
+
+    /**
+     * 处理单个批次的字段分类，已有断点结果时直接复用
+     * 新的批次结果在合并前回调，避免合并过程修改结果后再持久化
+     */
+    private JsonNode categorizeBatchWithCheckpoint(List<ExcelField> batch, JsonNode existingCategories, String batchKey,
+                                                   Map<String, JsonNode> completedBatches,
+                                                   BiConsumer<String, JsonNode> batchCallback) {
+        JsonNode completed = completedBatches.get(batchKey);
+        if (completed != null) {
+            logger.info("批次 {} 已有断点结果，跳过大模型调用", batchKey);
+            return completed;
+        }
+        JsonNode batchResult = categorizeSingleBatch(batch, existingCategories);
+        if (batchCallback != null) {
+            batchCallback.accept(batchKey, batchResult);
+        }
+        return batchResult;
+    }
+
+    /**
+     * 根据批次中字段的表名和字段名计算批次标识
+     */
+    static String batchKey(List<ExcelField> batch) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (ExcelField field : batch) {
+                digest.update(String.valueOf(field.getTableName()).getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 1);
+                digest.update(String.valueOf(field.getFieldName()).getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) '\n');
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256算法不可用", e);
+        }
+    }
+
     /**
      * 处理单个批次的字段分类，并考虑已有的分类
      * @param fields 当前批次的字段
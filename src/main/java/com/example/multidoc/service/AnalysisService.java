@@ -3,13 +3,20 @@ package com.example.multidoc.service;
 import com.example.multidoc.model.*;
 import com.example.multidoc.repository.*;
 import com.example.multidoc.util.ExcelProcessor;
+import com.example.multidoc.util.FieldCanonicalizer;
+import com.example.multidoc.util.ResourceLimiter;
+import com.example.multidoc.util.RulePromptBuilder;
+import com.example.multidoc.util.WordProcessor;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
@@ -23,6 +30,8 @@ import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
@@ -78,12 +87,30 @@ public class AnalysisService {
     @Qualifier("analysisTaskExecutor")
     private Executor analysisTaskExecutor;
 
+    @Autowired
+    @Qualifier("ruleExtractionExecutor")
+    private Executor ruleExtractionExecutor;
+
     @Autowired
     private FieldSentenceRelationRepository relationRepository;
 
     @Autowired
     private DocumentScopeRepository documentScopeRepository;
 
+    @Autowired
+    private TaskCheckpointRepository checkpointRepository;
+
+    @Value("${app.rule-extraction.prompt-token-budget:12000}")
+    private int promptTokenBudget;
+
+    @Autowired
+    @Qualifier("dbLimiter")
+    private ResourceLimiter dbLimiter;
+
+    @Autowired
+    @Qualifier("diskLimiter")
+    private ResourceLimiter diskLimiter;
+
     @Autowired
     private LuceneService luceneService;
 
@@ -93,6 +120,9 @@ public class AnalysisService {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private TaskProgressPublisher progressPublisher;
+
     /**
      * 处理分析任务
      */
@@ -102,6 +132,9 @@ public class AnalysisService {
                 .orElseThrow(() -> new RuntimeException("Task not found: " + taskId));
 
         try {
+            // 句子是否已在本次运行的报送范围提取步骤中随解析结果一并保存
+            boolean wordSentencesSaved = false;
+
             // --- Step 0: Document Scope Extraction ---
             if (!isStepCompleted(task.getLastCompletedStep(), STEP_DOCUMENT_SCOPE_EXTRACTION)) {
                 logger.info("Task {} - Step: {}", taskId, STEP_DOCUMENT_SCOPE_EXTRACTION);
@@ -114,19 +147,22 @@ public class AnalysisService {
                     taskService.addLog(task, "清理之前的文档报送范围数据", "INFO");
                 }
 
+                // 并行解析所有Word文档，报送范围提取和句子拆分共用，避免同一文件解析两次
+                List<WordProcessor.ParsedDocument> parsedWordDocuments = documentService.parseWordDocuments(task.getWordFilePaths());
+
                 // 处理所有Word文档
-                for (String filePath : task.getWordFilePaths()) {
+                for (WordProcessor.ParsedDocument document : parsedWordDocuments) {
+                    String filePath = document.getFilePath();
                     try {
-                        File file = new File(filePath);
-                        if (!file.exists()) {
+                        if (!new File(filePath).exists()) {
                             taskService.addLog(task, "文件不存在: " + filePath, "ERROR");
                             continue;
                         }
 
                         // 提取文档的前2000字
-                        String documentPrefix = documentService.extractDocumentPrefix(filePath);
+                        String documentPrefix = documentService.extractDocumentPrefix(document);
 
-                        String fileName = file.getName();
+                        String fileName = document.getFileName();
                         taskService.addLog(task, "已提取文档前缀: " + fileName, "INFO");
 
                         // 调用AI服务提取报送范围
@@ -154,6 +190,13 @@ public class AnalysisService {
                 updatedTask.setLastCompletedStep(STEP_DOCUMENT_SCOPE_EXTRACTION);
                 taskRepository.save(updatedTask);
                 taskService.addLog(task, "文档报送范围提取步骤完成", "INFO");
+
+                // 解析结果不带入字段分类步骤：趁文档仍在内存中保存句子，随后即可释放；
+                // 有文档解析失败时留给Word处理步骤按原流程报错
+                if (parsedWordDocuments.stream().allMatch(WordProcessor.ParsedDocument::isParsed)) {
+                    saveWordSentences(task, parsedWordDocuments);
+                    wordSentencesSaved = true;
+                }
             }
 
             // --- Step 1: Excel and Field Processing ---
@@ -169,32 +212,45 @@ public class AnalysisService {
                 }
 
                 // Process all Excel files to get the content for AI analysis
+                // 各文件并行读取，结果按文件顺序合并
+                List<String> excelFilePaths = task.getExcelFilePaths();
+                List<List<ExcelProcessor.ElementInfo>> extractedElements;
+                try {
+                    extractedElements = diskLimiter.call(() -> documentService.processExcelFiles(excelFilePaths));
+                } catch (Exception e) {
+                    logger.error("Failed to process Excel files for task " + taskId, e);
+                    taskService.addLog(task, "处理Excel文件失败: " + e.getMessage(), "ERROR");
+                    throw new RuntimeException("Failed to process Excel file: " + e.getMessage(), e);
+                }
+
                 List<ExcelField> allFields = new ArrayList<>();
-                for (String filePath : task.getExcelFilePaths()) {
-                    try {
-                        List<ExcelProcessor.ElementInfo> elements = documentService.processExcelFile(filePath);
-                        taskService.addLog(task, "处理Excel文件: " + filePath, "INFO");
-                        for (ExcelProcessor.ElementInfo element : elements) {
-                            ExcelField field = new ExcelField();
-                            field.setTask(task);
-                            field.setTableName(element.getTableName());
-                            field.setFieldName(element.getValue());
-                            field.setFieldType("STRING");
-                            field.setDescription(element.getValue());
-                            allFields.add(field);
-                        }
-                    } catch (Exception e) {
-                        logger.error("Failed to process Excel file: " + filePath, e);
-                        taskService.addLog(task, "处理Excel文件失败: " + e.getMessage(), "ERROR");
-                        throw new RuntimeException("Failed to process Excel file: " + e.getMessage(), e);
+                for (int i = 0; i < excelFilePaths.size(); i++) {
+                    taskService.addLog(task, "处理Excel文件: " + excelFilePaths.get(i), "INFO");
+                    for (ExcelProcessor.ElementInfo element : extractedElements.get(i)) {
+                        ExcelField field = new ExcelField();
+                        field.setTask(task);
+                        field.setTableName(element.getTableName());
+                        field.setFieldName(element.getValue());
+                        field.setFieldType("STRING");
+                        field.setDescription(element.getValue());
+                        allFields.add(field);
                     }
                 }
 
-                // Call AI service for field categorization
+                // 重复的表头、单位等字段只送一份去分类，分类结果再分发到各个出现位置
+                FieldCanonicalizer canonicalizer = new FieldCanonicalizer();
+                allFields.forEach(canonicalizer::add);
+                List<ExcelField> uniqueFields = canonicalizer.getUniqueFields();
                 if (!allFields.isEmpty()) {
+                    taskService.addLog(task, String.format("字段去重：共 %d 个字段，去重后 %d 个",
+                        canonicalizer.getFieldCount(), canonicalizer.getUniqueCount()), "INFO");
+                }
+
+                // Call AI service for field categorization
+                if (!uniqueFields.isEmpty()) {
                     taskService.addLog(task, "开始字段分类", "INFO");
 
-                    int totalFields = allFields.size();
+                    int totalFields = uniqueFields.size();
                     int batchSize = 100; // 获取fieldBatchSize的值
                     try {
                         batchSize = Integer.parseInt(
@@ -212,15 +268,20 @@ public class AnalysisService {
                     updateTaskProgress(taskId, STEP_EXCEL_AND_FIELD_PROCESSING,
                         String.format("开始字段分类 (0/%d 批次)", totalBatches), 20);
 
-                    // 调用AI服务进行字段分类，带进度回调
-                    JsonNode categoriesNode = callAIServiceWithRetry("Field Categorization", () ->
-                        aiService.categorizeFields(allFields, (currentBatch, totalBatch) -> {
+                    // 调用AI服务进行字段分类，带进度回调；每个批次完成后记录断点，重试或恢复时跳过已完成的批次
+                    JsonNode categoriesNode = callAIServiceWithRetry("Field Categorization", () -> {
+                        Map<String, JsonNode> completedBatches = loadBatchCheckpoints(task);
+                        if (!completedBatches.isEmpty()) {
+                            taskService.addLog(task, String.format("复用已完成的 %d 个字段分类批次", completedBatches.size()), "INFO");
+                        }
+                        return aiService.categorizeFields(uniqueFields, (currentBatch, totalBatch) -> {
                             String message = String.format("正在字段分类 (%d/%d 批次)", currentBatch, totalBatch);
                             int progress = 20 + (int)(80.0 * currentBatch / totalBatch);
                             updateTaskProgress(taskId, STEP_EXCEL_AND_FIELD_PROCESSING, message, progress);
                             taskService.addLog(task, message, "INFO");
-                        })
-                    );
+                        }, completedBatches, (batchKey, batchResult) ->
+                            saveCheckpoint(task, STEP_EXCEL_AND_FIELD_PROCESSING, batchKey, batchResult.toString()));
+                    });
 
                     // Process categorization results and save fields
                     if (categoriesNode.has("categories") && categoriesNode.get("categories").isArray()) {
@@ -229,25 +290,24 @@ public class AnalysisService {
                             taskService.addLog(task, "处理分类: " + categoryName, "INFO");
 
                             if (categoryNode.has("fields") && categoryNode.get("fields").isArray()) {
+                                // 同一分类中同一出现位置只保存一次
+                                Set<ExcelField> savedOccurrences = Collections.newSetFromMap(new IdentityHashMap<>());
                                 for (JsonNode fieldNode : categoryNode.get("fields")) {
-                                    // Create and save field directly from AI response
-                                    ExcelField field = new ExcelField();
-                                    field.setTask(task);
-                                    field.setTableName(fieldNode.has("tableName") ?
-                                        fieldNode.get("tableName").asText() : null);
-                                    field.setFieldName(fieldNode.get("fieldName").asText());
-                                    field.setFieldType(fieldNode.has("fieldType") ?
-                                        fieldNode.get("fieldType").asText() : "STRING");
-                                    field.setDescription(fieldNode.has("description") ?
-                                        fieldNode.get("description").asText() : field.getFieldName());
-                                    field.setCategory(categoryName);
-                                    try {
-                                        fieldRepository.save(field);
-                                    } catch (Exception e) {
-                                        logger.error(e.getMessage());
+                                    String fieldName = fieldNode.get("fieldName").asText();
+                                    List<ExcelField> occurrences = canonicalizer.getOccurrences(fieldName);
+                                    if (occurrences.isEmpty()) {
+                                        // 大模型返回的字段无法对应到原始字段时按返回内容保存
+                                        saveCategorizedField(task, fieldNode, categoryName,
+                                            fieldNode.has("tableName") ? fieldNode.get("tableName").asText() : null,
+                                            fieldName);
+                                        continue;
+                                    }
+                                    for (ExcelField occurrence : occurrences) {
+                                        if (savedOccurrences.add(occurrence)) {
+                                            saveCategorizedField(task, fieldNode, categoryName,
+                                                occurrence.getTableName(), occurrence.getFieldName());
+                                        }
                                     }
-                                    logger.debug("Task {} - Saved field '{}' with category '{}'",
-                                        task.getId(), field.getFieldName(), categoryName);
                                 }
                             }
                         }
@@ -260,6 +320,8 @@ public class AnalysisService {
                 updateTaskProgress(taskId, STEP_EXCEL_AND_FIELD_PROCESSING, "Excel and field processing complete", 100);
                 task.setLastCompletedStep(STEP_EXCEL_AND_FIELD_PROCESSING);
                 taskRepository.save(task);
+                // 步骤已完成，批次断点不再需要
+                dbLimiter.run(() -> checkpointRepository.deleteByTaskAndStep(task, STEP_EXCEL_AND_FIELD_PROCESSING));
                 taskService.addLog(task, "Excel文档和字段处理完成", "INFO");
                 logger.info("Task {} - Completed Step: {}", taskId, STEP_EXCEL_AND_FIELD_PROCESSING);
             } else if (isResuming) {
@@ -273,19 +335,10 @@ public class AnalysisService {
                 updateTaskProgress(taskId, STEP_WORD_PROCESSING, "Starting Word processing (sentence-level)", 0);
                 taskService.addLog(task, "开始处理Word文档", "INFO");
 
-                // Only delete and reprocess if the step was not completed
-                if (isResuming) {
-                    sentenceRepository.deleteByTask(task);
-                    taskService.addLog(task, "清理之前的句子数据", "INFO");
-                }
-
-                try {
-                    documentService.processWordDocuments(task);
-                    taskService.addLog(task, "Word文档处理完成", "INFO");
-                } catch (IOException e) {
-                    logger.error("Task {} - Word processing failed", taskId, e);
-                    taskService.addLog(task, "Word文档处理失败: " + e.getMessage(), "ERROR");
-                    throw new RuntimeException("Word processing failed: " + e.getMessage(), e);
+                if (wordSentencesSaved) {
+                    taskService.addLog(task, "复用报送范围提取步骤中保存的句子", "INFO");
+                } else {
+                    saveWordSentences(task, null);
                 }
 
                 updateTaskProgress(taskId, STEP_WORD_PROCESSING, "Word processing complete", 100);
@@ -312,7 +365,7 @@ public class AnalysisService {
                     allFields.size(), allSentences.size()), "INFO");
 
                 // 使用 Lucene 评估相关性
-                luceneService.calculateRelevance(allFields, allSentences);
+                luceneService.calculateRelevance(taskId, allFields, allSentences);
                 taskService.addLog(task, "Lucene相关性分析完成", "INFO");
 
                 updateTaskProgress(taskId, STEP_LUCENE_ANALYSIS, "Lucene relevance analysis complete", 100);
@@ -330,32 +383,27 @@ public class AnalysisService {
                 updateTaskProgress(taskId, STEP_RULE_EXTRACTION, "Starting rule extraction", 0);
                 taskService.addLog(task, "开始规则提取", "INFO");
 
-                // Only delete and reprocess if the step was not completed
-                if (isResuming) {
-                    ruleRepository.deleteByTask(task);
-                    taskService.addLog(task, "清理之前的规则数据", "INFO");
-                }
-
                 List<String> categories = fieldRepository.findDistinctCategoriesByTask(task);
-                int totalCategories = categories.size();
-                AtomicInteger processedCategories = new AtomicInteger(0);
-
-                for (String category : categories) {
-                    List<ExcelField> fieldsInCategory = fieldRepository.findByTaskAndCategory(task, category);
-                    if (!fieldsInCategory.isEmpty()) {
-                        taskService.addLog(task, String.format("处理分类'%s'的规则提取", category), "INFO");
-                        extractRulesForCategory(task, category, fieldsInCategory);
-                    }
-
-                    // Update progress
-                    int progress = (int) ((processedCategories.incrementAndGet() * 100.0) / totalCategories);
-                    String message = String.format("Processed %d/%d categories", processedCategories.get(), totalCategories);
-                    updateTaskProgress(taskId, STEP_RULE_EXTRACTION, message, progress);
+                List<String> pendingCategories = new ArrayList<>(categories);
+
+                // 每个分类完成后记录断点，与字段分类批次一样总是读取断点，只重做尚未完成的分类
+                Set<String> completedCategories = loadCheckpoints(task, STEP_RULE_EXTRACTION).keySet();
+                pendingCategories.removeIf(completedCategories::contains);
+                // 清理未完成分类可能残留的部分规则
+                for (String category : pendingCategories) {
+                    dbLimiter.run(() -> ruleRepository.deleteByTaskAndCategory(task, category));
+                }
+                if (!completedCategories.isEmpty()) {
+                    taskService.addLog(task, String.format("复用已完成的 %d 个分类的规则，剩余 %d 个分类待提取",
+                        categories.size() - pendingCategories.size(), pendingCategories.size()), "INFO");
                 }
 
+                extractRulesInParallel(task, pendingCategories, categories.size());
+
                 updateTaskProgress(taskId, STEP_RULE_EXTRACTION, "Rule extraction complete", 100);
                 task.setLastCompletedStep(STEP_RULE_EXTRACTION);
                 taskRepository.save(task);
+                dbLimiter.run(() -> checkpointRepository.deleteByTaskAndStep(task, STEP_RULE_EXTRACTION));
                 taskService.addLog(task, "规则提取完成", "INFO");
                 logger.info("Task {} - Completed Step: {}", taskId, STEP_RULE_EXTRACTION);
             } else if (isResuming) {
@@ -384,6 +432,7 @@ public class AnalysisService {
             task.setLastCompletedStep(STEP_COMPLETE);
             taskRepository.save(task);
             taskService.addLog(task, "任务完成", "INFO");
+            progressPublisher.publishProgress(task, STEP_COMPLETE, "任务完成");
 
             logger.info("Task {} - Analysis completed successfully", taskId);
 
@@ -392,7 +441,30 @@ public class AnalysisService {
             taskService.addLog(task, "任务执行出错: " + e.getMessage(), "ERROR");
             task.setStatus(AnalysisTask.TaskStatus.FAILED);
             taskRepository.save(task);
+            progressPublisher.publishProgress(task, task.getLastCompletedStep(), "任务执行出错: " + e.getMessage());
             throw new RuntimeException("Analysis failed: " + e.getMessage(), e);
+        } finally {
+            // 日志异步写入，任务结束前确保已全部落库
+            taskService.flushLogs();
+        }
+    }
+
+    /**
+     * 拆分并保存任务Word文档的句子
+     * 写入前总是清理任务已有的句子：之前的运行可能已在报送范围提取步骤中保存过句子，
+     * 之后又在Word处理步骤完成前失败
+     * @param documents 已解析的文档，为null时重新解析
+     */
+    private void saveWordSentences(AnalysisTask task, List<WordProcessor.ParsedDocument> documents) {
+        dbLimiter.run(() -> sentenceRepository.deleteByTask(task));
+
+        try {
+            documentService.processWordDocuments(task, documents);
+            taskService.addLog(task, "Word文档处理完成", "INFO");
+        } catch (IOException e) {
+            logger.error("Task {} - Word processing failed", task.getId(), e);
+            taskService.addLog(task, "Word文档处理失败: " + e.getMessage(), "ERROR");
+            throw new RuntimeException("Word processing failed: " + e.getMessage(), e);
         }
     }
 
@@ -424,6 +496,7 @@ public class AnalysisService {
                 .orElseThrow(() -> new RuntimeException("Task not found: " + taskId));
             task.setProgress(progress);
             taskRepository.save(task);
+            progressPublisher.publishProgress(task, step, message);
             logger.debug("Task {} - {} - Progress: {}% - {}", taskId, step, progress, message);
                 } catch (Exception e) {
             logger.error("Failed to update task progress: {}", e.getMessage());
@@ -431,26 +504,116 @@ public class AnalysisService {
     }
 
     /**
-     * 为特定类别提取规则
+     * 并行提取各分类的规则
+     * 分类在规则提取线程池中并发处理，单个分类失败不影响其他分类，
+     * 全部分类结束后如有失败则抛出异常，已完成分类的规则保留以便恢复时跳过
+     * @param task 分析任务
+     * @param categories 待提取规则的分类
+     * @param totalCategories 分类总数（含已完成的分类），用于计算进度
      */
-    private void extractRulesForCategory(AnalysisTask task, String category, List<ExcelField> fieldsInCategory) {
-        taskService.addLog(task, String.format("开始为类别 '%s' 提取规则，包含 %d 个字段", category, fieldsInCategory.size()), "INFO");
+    private void extractRulesInParallel(AnalysisTask task, List<String> categories, int totalCategories) {
+        String taskId = task.getId();
+        AtomicInteger processedCategories = new AtomicInteger(totalCategories - categories.size());
+        Map<String, Exception> failedCategories = new ConcurrentHashMap<>();
+        if (categories.isEmpty()) {
+            return;
+        }
 
-        try {
-            // 获取以句子为单位的文档内容
-            List<WordSentence> sentences = sentenceRepository.findByTask(task);
-            taskService.addLog(task, String.format("为规则提取加载了 %d 个文档句子", sentences.size()), "INFO");
-
-            // 获取文档报送范围信息
-            List<DocumentScope> documentScopes = documentScopeRepository.findByTask(task);
-            Map<String, String> scopeMap = new HashMap<>();
-            if (documentScopes != null && !documentScopes.isEmpty()) {
-                for (DocumentScope scope : documentScopes) {
-                    if (scope.getScopeContent() != null && !scope.getScopeContent().trim().isEmpty()) {
-                        scopeMap.put(scope.getFileName(), scope.getScopeContent());
+        // 整个任务的关联、报送范围只加载一次，各分类共享
+        RuleExtractionData data = loadRuleExtractionData(task);
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (String category : categories) {
+            futures.add(CompletableFuture.runAsync(() -> {
+                try {
+                    List<ExcelField> fieldsInCategory = fieldRepository.findByTaskAndCategory(task, category);
+                    if (!fieldsInCategory.isEmpty()) {
+                        taskService.addLog(task, String.format("处理分类'%s'的规则提取", category), "INFO");
+                        extractRulesForCategory(task, category, fieldsInCategory, data);
                     }
+                } catch (Exception e) {
+                    failedCategories.put(category, e);
+                    return;
+                }
+
+                // Update progress
+                int processed = processedCategories.incrementAndGet();
+                int progress = (int) ((processed * 100.0) / totalCategories);
+                String message = String.format("Processed %d/%d categories", processed, totalCategories);
+                updateTaskProgress(taskId, STEP_RULE_EXTRACTION, message, progress);
+            }, ruleExtractionExecutor));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+        if (!failedCategories.isEmpty()) {
+            List<String> failedNames = new ArrayList<>(failedCategories.keySet());
+            Collections.sort(failedNames);
+            taskService.addLog(task, String.format("%d 个分类规则提取失败: %s", failedNames.size(),
+                String.join(", ", failedNames)), "ERROR");
+            throw new RuntimeException(String.format("%d 个分类规则提取失败: %s", failedNames.size(),
+                String.join(", ", failedNames)), failedCategories.get(failedNames.get(0)));
+        }
+    }
+
+    /**
+     * 规则提取所需的任务级数据，在各分类之间只读共享
+     */
+    private static class RuleExtractionData {
+
+        // 字段ID → 按相关性得分降序排列的关联句子
+        private final Map<Long, List<FieldSentenceRelation>> relationsByField;
+        // 文件名 → 报送范围
+        private final Map<String, String> scopeMap;
+        private final long sentenceCount;
+
+        RuleExtractionData(Map<Long, List<FieldSentenceRelation>> relationsByField,
+                           Map<String, String> scopeMap, long sentenceCount) {
+            this.relationsByField = relationsByField;
+            this.scopeMap = scopeMap;
+            this.sentenceCount = sentenceCount;
+        }
+
+        List<FieldSentenceRelation> relationsOf(Long fieldId) {
+            return relationsByField.getOrDefault(fieldId, Collections.emptyList());
+        }
+    }
+
+    /**
+     * 一次性加载任务的全部字段-句子关联（按字段分组）、文档报送范围和句子数
+     */
+    private RuleExtractionData loadRuleExtractionData(AnalysisTask task) {
+        Map<Long, List<FieldSentenceRelation>> relationsByField = new HashMap<>();
+        List<FieldSentenceRelation> relations = relationRepository.findByTaskOrderByFieldIdAndRelevanceScoreDesc(task);
+        for (FieldSentenceRelation relation : relations) {
+            relationsByField.computeIfAbsent(relation.getFieldId(), id -> new ArrayList<>()).add(relation);
+        }
+
+        Map<String, String> scopeMap = new HashMap<>();
+        List<DocumentScope> documentScopes = documentScopeRepository.findByTask(task);
+        if (documentScopes != null) {
+            for (DocumentScope scope : documentScopes) {
+                if (scope.getScopeContent() != null && !scope.getScopeContent().trim().isEmpty()) {
+                    scopeMap.put(scope.getFileName(), scope.getScopeContent());
                 }
             }
+        }
+
+        long sentenceCount = sentenceRepository.countByTask(task);
+        logger.info("Task {} - 规则提取数据加载完成：{} 个字段的 {} 条关联，{} 个文档报送范围，{} 个句子",
+                task.getId(), relationsByField.size(), relations.size(), scopeMap.size(), sentenceCount);
+        return new RuleExtractionData(relationsByField, scopeMap, sentenceCount);
+    }
+
+    /**
+     * 为特定类别提取规则
+     */
+    private void extractRulesForCategory(AnalysisTask task, String category, List<ExcelField> fieldsInCategory,
+                                         RuleExtractionData data) {
+        taskService.addLog(task, String.format("开始为类别 '%s' 提取规则，包含 %d 个字段", category, fieldsInCategory.size()), "INFO");
+
+        try {
+            taskService.addLog(task, String.format("为规则提取加载了 %d 个文档句子", data.sentenceCount), "INFO");
+            Map<String, String> scopeMap = data.scopeMap;
 
             // 记录分类中的具体字段信息，包含表名
             StringBuilder fieldDetails = new StringBuilder();
@@ -466,14 +629,11 @@ public class AnalysisService {
 
             logger.info("Task {} - 开始处理分类 '{}' 中的 {} 个字段", task.getId(), category, fieldsInCategory.size());
 
-            // 收集该分类所有字段关联的句子及其报送范围
-            Set<WordSentence> allRelevantSentences = new HashSet<>();
-            StringBuilder scopeInfoBuilder = new StringBuilder();
-            Set<String> processedFiles = new HashSet<>();
-
+            // 收集该分类所有字段关联的句子
+            Map<Long, List<FieldSentenceRelation>> relationsByField = new HashMap<>();
             for (ExcelField field : fieldsInCategory) {
-                // 使用新的关系表获取相关句子
-                List<FieldSentenceRelation> relations = relationRepository.findByFieldIdOrderByRelevanceScoreDesc(field.getId());
+                List<FieldSentenceRelation> relations = data.relationsOf(field.getId());
+                relationsByField.put(field.getId(), relations);
 
                 // 记录字段的相关句子详情
                 StringBuilder sentenceDetails = new StringBuilder();
@@ -487,58 +647,51 @@ public class AnalysisService {
                     sentenceDetails.append(String.format("  来源文件: %s\n", relation.getSourceFile()));
                     sentenceDetails.append(String.format("  句子内容: %s\n", relation.getSentenceContent()));
                     sentenceDetails.append("  ---\n");
-
-                    WordSentence sentence = new WordSentence();
-                    sentence.setId(relation.getSentenceId());
-                    sentence.setContent(relation.getSentenceContent());
-                    sentence.setSourceFile(relation.getSourceFile());
-                    allRelevantSentences.add(sentence);
-
-                    // 收集句子的报送范围信息
-                    String sourceFile = relation.getSourceFile();
-                    if (!processedFiles.contains(sourceFile) && scopeMap.containsKey(sourceFile)) {
-                        scopeInfoBuilder.append("### ").append(sourceFile).append("\n");
-                        scopeInfoBuilder.append(scopeMap.get(sourceFile)).append("\n\n");
-                        processedFiles.add(sourceFile);
-                    }
                 }
 
                 taskService.addLog(task, sentenceDetails.toString(), "INFO");
             }
-            taskService.addLog(task, scopeInfoBuilder.toString(), "INFO");
-
-
-            // 从集合转为列表并去重
-            List<WordSentence> dedupedSentences = new ArrayList<>(allRelevantSentences);
-
-            // 按源文件和索引排序，保持上下文结构
-            dedupedSentences.sort(Comparator.comparing(WordSentence::getSourceFile).thenComparingInt(WordSentence::getSentenceIndex));
 
-            logger.info("Task {} - 分类 '{}' 关联的去重句子数量: {}", task.getId(), category, dedupedSentences.size());
-
-            // 构建句子文本
-            StringBuilder sentencesText = new StringBuilder();
-            for (WordSentence sentence : dedupedSentences) {
-                sentencesText.append(sentence.getContent()).append("\n");
+            // 按token预算构建提示，超出预算的分类拆分为多个子请求
+            RulePromptBuilder promptBuilder = new RulePromptBuilder(
+                    promptTokenBudget > 0 ? promptTokenBudget : Integer.MAX_VALUE);
+            List<RulePromptBuilder.RulePrompt> prompts =
+                    promptBuilder.build(category, fieldsInCategory, relationsByField, scopeMap);
+            if (prompts.size() > 1) {
+                taskService.addLog(task, String.format("类别 '%s' 的内容超出提示预算，拆分为 %d 个子请求",
+                        category, prompts.size()), "INFO");
             }
 
-            // 构建规则提取提示
-            String promptContent = String.format(
-                    "分类: %s\n\n字段列表:\n%s\n相关文本:\n%s",
-                    category,
-                    fieldDetails,
-                    sentencesText
-            );
-
-            // 构建最终的提示，添加所有相关句子的报送范围信息
-            final String prompt = promptContent + "\n\n## 相关文档的报送范围信息\n\n" + scopeInfoBuilder;
-            logger.info("Task {} - 发送给AI的规则提取提示内容：\n{}", task.getId(), prompt);
-
-            // 为类别提取规则
-            JsonNode rulesNode = callAIServiceWithRetry("Rule Extraction", () -> aiService.extractRules(prompt, fieldsInCategory));
+            ArrayNode mergedRules = objectMapper.createArrayNode();
+            Set<String> seenRules = new HashSet<>();
+            for (int i = 0; i < prompts.size(); i++) {
+                RulePromptBuilder.RulePrompt rulePrompt = prompts.get(i);
+                logger.info("Task {} - 分类 '{}' 子请求 {}/{}：{} 个字段，{} 个句子（因预算省略 {} 个），约 {} tokens",
+                        task.getId(), category, i + 1, prompts.size(), rulePrompt.getFields().size(),
+                        rulePrompt.getIncludedSentences(), rulePrompt.getOmittedSentences(),
+                        rulePrompt.getEstimatedTokens());
+                logger.debug("Task {} - 发送给AI的规则提取提示内容：\n{}", task.getId(), rulePrompt.getContent());
+
+                // 为类别提取规则
+                JsonNode rulesNode = callAIServiceWithRetry("Rule Extraction",
+                        () -> aiService.extractRules(rulePrompt.getContent(), rulePrompt.getFields()));
+
+                // 合并各子请求的规则，去掉类型和内容相同的重复规则
+                if (rulesNode != null && rulesNode.has("rules") && rulesNode.get("rules").isArray()) {
+                    for (JsonNode ruleNode : rulesNode.get("rules")) {
+                        String ruleKey = ruleNode.path("type").asText() + "|" + ruleNode.path("content").asText();
+                        if (seenRules.add(ruleKey)) {
+                            mergedRules.add(ruleNode);
+                        }
+                    }
+                }
+            }
+            ObjectNode rulesNode = objectMapper.createObjectNode();
+            rulesNode.set("rules", mergedRules);
 
-            // 处理和保存规则
-            processAndSaveRules(category, task, rulesNode);
+            // 处理和保存规则，并记录该分类的断点
+            int ruleCount = processAndSaveRules(category, task, rulesNode);
+            saveCheckpoint(task, STEP_RULE_EXTRACTION, category, String.valueOf(ruleCount));
 
             taskService.addLog(task, String.format("已完成类别 '%s' 的规则提取", category), "INFO");
         } catch (Exception e) {
@@ -548,8 +701,9 @@ public class AnalysisService {
         }
     }
 
-    private void processAndSaveRules(String category, AnalysisTask task, JsonNode rulesNode) {
+    private int processAndSaveRules(String category, AnalysisTask task, JsonNode rulesNode) {
         try {
+            List<FieldRule> rules = new ArrayList<>();
             if (rulesNode.has("rules") && rulesNode.get("rules").isArray()) {
                 for (JsonNode ruleNode : rulesNode.get("rules")) {
                     FieldRule rule = new FieldRule();
@@ -586,15 +740,56 @@ public class AnalysisService {
                     }
                     rule.setIsCrossTable(isCrossTable);
 
-                    ruleRepository.save(rule);
+                    rules.add(rule);
                 }
             }
+            // 同一分类的规则在一个事务中整体提交
+            dbLimiter.run(() -> ruleRepository.saveAll(rules));
+            return rules.size();
         } catch (JsonProcessingException e) {
             logger.error("Failed to process rules JSON", e);
             throw new RuntimeException("Failed to process rules: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * 加载任务某一步骤已记录的断点
+     * @return 断点单元标识到断点数据的映射
+     */
+    private Map<String, String> loadCheckpoints(AnalysisTask task, String step) {
+        Map<String, String> checkpoints = new HashMap<>();
+        for (TaskCheckpoint checkpoint : checkpointRepository.findByTaskAndStep(task, step)) {
+            checkpoints.put(checkpoint.getUnitKey(), checkpoint.getPayload());
+        }
+        return checkpoints;
+    }
+
+    /**
+     * 加载字段分类已完成批次的结果，无法解析的断点将被忽略并重新分类
+     */
+    private Map<String, JsonNode> loadBatchCheckpoints(AnalysisTask task) {
+        Map<String, JsonNode> completedBatches = new HashMap<>();
+        for (Map.Entry<String, String> entry : loadCheckpoints(task, STEP_EXCEL_AND_FIELD_PROCESSING).entrySet()) {
+            try {
+                completedBatches.put(entry.getKey(), objectMapper.readTree(entry.getValue()));
+            } catch (JsonProcessingException e) {
+                logger.warn("Task {} - 字段分类批次断点 {} 解析失败，将重新分类", task.getId(), entry.getKey());
+            }
+        }
+        return completedBatches;
+    }
+
+    /**
+     * 记录断点，断点写入失败只影响恢复时的复用，不中断当前任务
+     */
+    private void saveCheckpoint(AnalysisTask task, String step, String unitKey, String payload) {
+        try {
+            dbLimiter.run(() -> checkpointRepository.save(new TaskCheckpoint(task, step, unitKey, payload)));
+        } catch (Exception e) {
+            logger.warn("Task {} - 记录断点失败: step={}, unit={}, error={}", task.getId(), step, unitKey, e.getMessage());
+        }
+    }
+
     private String getTableNameFromField(String fieldName) {
         // 从字段名中提取表名
         // 这里假设字段名格式为 "表名.字段名" 或 "表名_字段名"
@@ -714,6 +909,14 @@ public class AnalysisService {
      * 执行分析任务
      */
     public CompletableFuture<AnalysisResult> executeAnalysisTask(String taskId) {
+        return executeAnalysisTask(taskId, false);
+    }
+
+    /**
+     * 执行分析任务
+     * @param isResuming 是否为恢复执行，恢复时清理未完成步骤残留的数据后从断点继续
+     */
+    public CompletableFuture<AnalysisResult> executeAnalysisTask(String taskId, boolean isResuming) {
         AnalysisTask task = getTaskById(taskId);
         if (task.getStatus() != AnalysisTask.TaskStatus.PENDING) {
             throw new RuntimeException("Task is not in PENDING state");
@@ -721,17 +924,25 @@ public class AnalysisService {
         task.setStatus(AnalysisTask.TaskStatus.RUNNING);
         taskRepository.save(task);
 
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                processTask(taskId, false);
-                return getResultByTaskId(taskId);
-            } catch (Exception e) {
-                logger.error("Task {} - Error during execution", taskId, e);
-                task.setStatus(AnalysisTask.TaskStatus.FAILED);
-                taskRepository.save(task);
-                throw new RuntimeException("Task execution failed: " + e.getMessage(), e);
-            }
-        }, analysisTaskExecutor);
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    processTask(taskId, isResuming);
+                    return getResultByTaskId(taskId);
+                } catch (Exception e) {
+                    logger.error("Task {} - Error during execution", taskId, e);
+                    task.setStatus(AnalysisTask.TaskStatus.FAILED);
+                    taskRepository.save(task);
+                    throw new RuntimeException("Task execution failed: " + e.getMessage(), e);
+                }
+            }, analysisTaskExecutor);
+        } catch (RejectedExecutionException e) {
+            // 线程池已满，任务退回待执行状态，由调用方稍后重试
+            logger.warn("Task {} - 分析任务线程池已满，任务未能提交", taskId);
+            task.setStatus(AnalysisTask.TaskStatus.PENDING);
+            taskRepository.save(task);
+            throw e;
+        }
     }
 
     /**
@@ -740,6 +951,7 @@ public class AnalysisService {
     public void deleteTask(String taskId) {
         AnalysisTask task = getTaskById(taskId);
         taskRepository.delete(task);
+        luceneService.deleteTaskIndex(taskId);
     }
 
     /**
@@ -761,7 +973,7 @@ public class AnalysisService {
         if (task.getStatus() == AnalysisTask.TaskStatus.FAILED) {
             task.setStatus(AnalysisTask.TaskStatus.PENDING);
             taskRepository.save(task);
-            executeAnalysisTask(taskId);
+            executeAnalysisTask(taskId, true);
         }
     }
 
@@ -807,6 +1019,29 @@ public class AnalysisService {
         }
     }
 
+    /**
+     * 按大模型返回的分类保存字段，表名和字段名取自字段的出现位置
+     */
+    private void saveCategorizedField(AnalysisTask task, JsonNode fieldNode, String categoryName,
+                                      String tableName, String fieldName) {
+        ExcelField field = new ExcelField();
+        field.setTask(task);
+        field.setTableName(tableName);
+        field.setFieldName(fieldName);
+        field.setFieldType(fieldNode.has("fieldType") ?
+            fieldNode.get("fieldType").asText() : "STRING");
+        field.setDescription(fieldNode.has("description") ?
+            fieldNode.get("description").asText() : field.getFieldName());
+        field.setCategory(categoryName);
+        try {
+            fieldRepository.save(field);
+        } catch (Exception e) {
+            logger.error(e.getMessage());
+        }
+        logger.debug("Task {} - Saved field '{}' with category '{}'",
+            task.getId(), field.getFieldName(), categoryName);
+    }
+
     private <T> T callAIServiceWithRetry(String operationName, Supplier<T> operation) {
         int attempts = 0;
         long currentDelay = RETRY_DELAY_MS;
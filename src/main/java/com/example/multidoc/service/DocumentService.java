@@ -3,21 +3,19 @@ package com.example.multidoc.service;
 import com.example.multidoc.config.FileStorageConfig;
 import com.example.multidoc.model.AnalysisTask;
 import com.example.multidoc.model.WordSentence;
-import com.example.multidoc.repository.WordSentenceRepository;
+import com.example.multidoc.repository.WordSentenceBatchRepository;
 import com.example.multidoc.util.ExcelProcessor;
+import com.example.multidoc.util.JdbcBatchWriter;
+import com.example.multidoc.util.ResourceLimiter;
 import com.example.multidoc.util.WordProcessor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
-import org.apache.poi.xwpf.usermodel.XWPFDocument;
-import org.apache.poi.xwpf.usermodel.XWPFParagraph;
-import org.apache.poi.xwpf.usermodel.XWPFRun;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -26,6 +24,9 @@ import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 @Service
 public class DocumentService {
@@ -42,7 +43,19 @@ public class DocumentService {
     private ExcelProcessor excelProcessor;
 
     @Autowired
-    private WordSentenceRepository wordSentenceRepository;
+    private WordSentenceBatchRepository wordSentenceBatchRepository;
+
+    @Autowired
+    @Qualifier("wordParsingExecutor")
+    private Executor wordParsingExecutor;
+
+    @Autowired
+    @Qualifier("excelParsingExecutor")
+    private Executor excelParsingExecutor;
+
+    @Autowired
+    @Qualifier("diskLimiter")
+    private ResourceLimiter diskLimiter;
 
     /**
      * 保存上传的Word文档
@@ -90,120 +103,96 @@ public class DocumentService {
     }
 
     /**
-     * 处理Word文档 - 以句子为单位
+     * 并行解析多个Word文档，每个文档在独立的线程上解析，结果按输入顺序返回
+     * 单个文档解析失败不影响其他文档，失败原因记录在对应结果中
+     * @param filePaths 文档路径列表
+     * @return 解析后的文档
      */
-    public void processWordDocuments(AnalysisTask task) throws IOException {
-        // 创建一个临时文件来存储所有文档的拼接内容
-        StringBuilder allContent = new StringBuilder();
-        int currentPosition = 0;
-        List<FilePosition> filePositions = new ArrayList<>();
-        
-        // 首先读取所有文档内容并拼接
-        for (String filePath : task.getWordFilePaths()) {
-            try {
-                File file = new File(filePath);
-                if (!file.exists()) {
-                    throw new RuntimeException("文件不存在: " + filePath);
-                }
-
-                // 直接读取文档内容
-                try (FileInputStream fis = new FileInputStream(file);
-                     XWPFDocument document = new XWPFDocument(fis)) {
-                    
-                    // 记录文件位置信息
-                    FilePosition filePosition = new FilePosition();
-                    filePosition.fileName = file.getName();
-                    filePosition.startPosition = currentPosition;
-                    
-                    // 读取所有段落并拼接
-                    for (XWPFParagraph paragraph : document.getParagraphs()) {
-                        String text = paragraph.getText().trim();
-                        if (!text.isEmpty()) {
-                            allContent.append(text).append("\n");
-                            currentPosition += text.length() + 1;
-                        }
-                    }
-                    
-                    filePosition.endPosition = currentPosition - 1;
-                    filePositions.add(filePosition);
-                }
-                
-            } catch (Exception e) {
-                logger.error("处理Word文档失败: " + filePath, e);
-                throw new RuntimeException("处理Word文档失败: " + e.getMessage(), e);
-            }
+    public List<WordProcessor.ParsedDocument> parseWordDocuments(List<String> filePaths) {
+        List<CompletableFuture<WordProcessor.ParsedDocument>> futures = new ArrayList<>();
+        for (String filePath : filePaths) {
+            futures.add(CompletableFuture.supplyAsync(() -> parseWordDocument(filePath), wordParsingExecutor));
         }
-        
-        // 创建临时文件存储拼接后的内容
-        File tempFile = null;
-        try {
-            tempFile = File.createTempFile("combined_", ".docx");
-            try (FileOutputStream fos = new FileOutputStream(tempFile);
-                 XWPFDocument document = new XWPFDocument()) {
-                
-                // 将拼接的内容写入临时文档
-                XWPFParagraph paragraph = document.createParagraph();
-                XWPFRun run = paragraph.createRun();
-                run.setText(allContent.toString());
-                
-                document.write(fos);
-            }
-            
-            // 使用 processSentences 方法对临时文件进行句子拆分
-            List<WordProcessor.WordSentenceInfo> sentences = wordProcessor.processSentences(tempFile);
-            
-            // 保存句子结果
-            for (int i = 0; i < sentences.size(); i++) {
-                WordProcessor.WordSentenceInfo sentenceInfo = sentences.get(i);
-                String sentenceContent = sentenceInfo.getContent();
-                
-                // 确定这个句子属于哪个源文件
-                String sourceFile = determineSourceFile(filePositions, sentenceInfo.getStartPosition(), sentenceInfo.getEndPosition());
-                
-                // 创建并保存 WordSentence 实体
-                WordSentence sentence = new WordSentence();
-                sentence.setTask(task);
-                sentence.setSentenceIndex(sentenceInfo.getSentenceIndex());
-                sentence.setContent(sentenceContent);
-                sentence.setSourceFile(sourceFile);
-                sentence.setStartPosition(sentenceInfo.getStartPosition());
-                sentence.setEndPosition(sentenceInfo.getEndPosition());
-                
-                wordSentenceRepository.save(sentence);
-            }
-            
-            logger.info("成功处理和保存 {} 个句子", sentences.size());
-            
-        } finally {
-            if (tempFile != null && tempFile.exists()) {
-                try {
-                    Files.delete(tempFile.toPath());
-                } catch (IOException e) {
-                    logger.warn("删除临时文件失败: " + tempFile.getPath(), e);
-                }
-            }
+
+        List<WordProcessor.ParsedDocument> documents = new ArrayList<>();
+        for (CompletableFuture<WordProcessor.ParsedDocument> future : futures) {
+            documents.add(future.join());
         }
+        logger.info("并行解析 {} 个Word文档完成", documents.size());
+        return documents;
     }
 
     /**
-     * 用于跟踪文件位置的内部类
+     * 读取并解析单个Word文档，只在读取期间占用磁盘许可
      */
-    private static class FilePosition {
-        String fileName;
-        int startPosition;
-        int endPosition;
+    private WordProcessor.ParsedDocument parseWordDocument(String filePath) {
+        return diskLimiter.call(() -> wordProcessor.parseDocument(filePath));
     }
 
     /**
-     * 根据位置确定句子属于哪个源文件
+     * 处理Word文档 - 以句子为单位
      */
-    private String determineSourceFile(List<FilePosition> filePositions, int start, int end) {
-        for (FilePosition pos : filePositions) {
-            if (start >= pos.startPosition && end <= pos.endPosition) {
-                return pos.fileName;
+    public void processWordDocuments(AnalysisTask task) throws IOException {
+        processWordDocuments(task, null);
+    }
+
+    /**
+     * 处理Word文档 - 以句子为单位
+     * 按文档顺序等待各文档的解析结果，拆出的句子连续编号后直接交给批量写入器，
+     * 每个文档写入后即释放，不在内存中汇总全部文档的句子；句子的来源文件即所在文档
+     * @param documents 已解析的文档，为null时在此并行解析任务的全部文档
+     */
+    public void processWordDocuments(AnalysisTask task, List<WordProcessor.ParsedDocument> documents) throws IOException {
+        List<CompletableFuture<WordProcessor.ParsedDocument>> parses = new ArrayList<>();
+        if (documents == null) {
+            for (String filePath : task.getWordFilePaths()) {
+                parses.add(CompletableFuture.supplyAsync(() -> parseWordDocument(filePath), wordParsingExecutor));
+            }
+        } else {
+            for (WordProcessor.ParsedDocument document : documents) {
+                if (!document.isParsed()) {
+                    throw new RuntimeException("处理Word文档失败: " + document.getError().getMessage(), document.getError());
+                }
+                parses.add(CompletableFuture.completedFuture(document));
             }
         }
-        return "unknown";
+
+        try (JdbcBatchWriter<WordSentence> writer = wordSentenceBatchRepository.openWriter()) {
+            int nextSentenceIndex = 0;
+            for (int i = 0; i < parses.size(); i++) {
+                // 取出后不再持有该文档的解析结果
+                WordProcessor.ParsedDocument document;
+                try {
+                    document = parses.set(i, null).join();
+                } catch (CompletionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    logger.error("处理Word文档失败", cause);
+                    throw new RuntimeException("处理Word文档失败: " + cause.getMessage(), cause);
+                }
+                if (!document.isParsed()) {
+                    logger.error("处理Word文档失败: " + document.getFilePath(), document.getError());
+                    throw new RuntimeException("处理Word文档失败: " + document.getError().getMessage(), document.getError());
+                }
+
+                int firstSentenceIndex = nextSentenceIndex;
+                nextSentenceIndex = wordProcessor.splitSentences(document, firstSentenceIndex, sentenceInfo -> {
+                    // 创建并保存 WordSentence 实体，序号在所有文档间连续
+                    WordSentence sentence = new WordSentence();
+                    sentence.setTask(task);
+                    sentence.setSentenceIndex(sentenceInfo.getSentenceIndex());
+                    sentence.setContent(sentenceInfo.getContent());
+                    sentence.setSourceFile(document.getFileName());
+                    sentence.setStartPosition(sentenceInfo.getStartPosition());
+                    sentence.setEndPosition(sentenceInfo.getEndPosition());
+
+                    writer.add(sentence);
+                });
+                logger.info("文档 {} 拆分出 {} 个句子", document.getFileName(), nextSentenceIndex - firstSentenceIndex);
+            }
+
+            writer.flush();
+            logger.info("成功处理和保存 {} 个句子", writer.getWrittenCount());
+        }
     }
 
     /**
@@ -241,40 +230,66 @@ public class DocumentService {
         }
     }
 
+    /**
+     * 并行处理多个Excel文件并提取字段信息
+     * 各工作簿（大文件的各工作表）并行读取，每个文件的结果独立构建，按输入顺序返回
+     * @param filePaths Excel文件路径列表
+     * @return 与输入顺序对应的字段信息列表
+     */
+    public List<List<ExcelProcessor.ElementInfo>> processExcelFiles(List<String> filePaths) {
+        List<CompletableFuture<List<ExcelProcessor.ElementInfo>>> futures = new ArrayList<>();
+        for (String filePath : filePaths) {
+            logger.info("开始处理Excel文件: {}", filePath);
+            futures.add(excelProcessor.extractFieldsAsync(filePath, excelParsingExecutor));
+        }
+
+        List<List<ExcelProcessor.ElementInfo>> results = new ArrayList<>();
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                List<ExcelProcessor.ElementInfo> fields = futures.get(i).join();
+                logger.info("成功从Excel文件中提取 {} 个字段: {}", fields.size(), filePaths.get(i));
+                results.add(fields);
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                logger.error("处理Excel文件失败: " + filePaths.get(i), cause);
+                throw new RuntimeException("处理Excel文件失败: " + cause.getMessage(), cause);
+            }
+        }
+        return results;
+    }
+
     /**
      * 从Word文档提取前2000字
      * @param filePath 文档路径
      * @return 文档前2000字内容
      */
     public String extractDocumentPrefix(String filePath) throws IOException {
-        File file = new File(filePath);
-        if (!file.exists()) {
-            throw new RuntimeException("文件不存在: " + filePath);
+        return extractDocumentPrefix(wordProcessor.parseDocument(filePath));
+    }
+
+    /**
+     * 从已解析的Word文档提取前2000字
+     * @param document 已解析的文档
+     * @return 文档前2000字内容
+     */
+    public String extractDocumentPrefix(WordProcessor.ParsedDocument document) throws IOException {
+        if (!document.isParsed()) {
+            throw new IOException("提取文档前缀失败: " + document.getError().getMessage(), document.getError());
         }
-        
+
         StringBuilder content = new StringBuilder();
         final int MAX_LENGTH = 2000;
-        
-        try (FileInputStream fis = new FileInputStream(file);
-             XWPFDocument document = new XWPFDocument(fis)) {
-            
-            for (XWPFParagraph paragraph : document.getParagraphs()) {
-                String text = paragraph.getText().trim();
-                if (!text.isEmpty()) {
-                    content.append(text).append("\n");
-                    
-                    // 如果已经超过2000字，则截断
-                    if (content.length() >= MAX_LENGTH) {
-                        content.setLength(MAX_LENGTH);
-                        break;
-                    }
-                }
+
+        for (String text : document.getParagraphs()) {
+            content.append(text).append("\n");
+
+            // 如果已经超过2000字，则截断
+            if (content.length() >= MAX_LENGTH) {
+                content.setLength(MAX_LENGTH);
+                break;
             }
-        } catch (Exception e) {
-            logger.error("提取文档前缀失败: " + filePath, e);
-            throw new IOException("提取文档前缀失败: " + e.getMessage(), e);
         }
-        
+
         return content.toString();
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,196 @@
+package com.example.multidoc.service;
+
+import com.example.multidoc.model.LlmResponseCacheEntry;
+import com.example.multidoc.repository.LlmResponseCacheRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 大模型响应缓存
+ * 以模型名称、温度、系统提示和用户提示的哈希为键，内存中保留最近使用的有限条目（LRU），
+ * 数据库中持久保存条目并定期按最近访问时间淘汰超出上限的部分，两级缓存均按TTL过期。
+ * 相同模板在每个报送周期重复上传时，可直接复用上一次的模型响应。
+ */
+@Service
+public class LlmResponseCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(LlmResponseCache.class);
+
+    @Autowired
+    private LlmResponseCacheRepository cacheRepository;
+
+    @Value("${app.llm.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.llm.cache.memory-max-entries:500}")
+    private int memoryMaxEntries;
+
+    @Value("${app.llm.cache.ttl-hours:720}")
+    private long ttlHours;
+
+    @Value("${app.llm.cache.max-entries:10000}")
+    private int maxEntries;
+
+    private final Map<String, LlmResponseCacheEntry> memoryCache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, LlmResponseCacheEntry> eldest) {
+            return size() > memoryMaxEntries;
+        }
+    };
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong databaseHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * 定期清理数据库中的缓存（启动时执行一次）
+     * 先删除过期条目，条目数仍超过上限时按最近访问时间淘汰最久未使用的条目
+     */
+    @Scheduled(fixedDelayString = "${app.llm.cache.eviction-interval-ms:3600000}")
+    public void evictEntries() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            long deleted = cacheRepository.deleteByCreatedTimeBefore(LocalDateTime.now().minus(ttl()));
+            if (deleted > 0) {
+                logger.info("清理过期的大模型响应缓存 {} 条", deleted);
+            }
+
+            if (maxEntries <= 0 || cacheRepository.count() <= maxEntries) {
+                return;
+            }
+            // 第maxEntries新的访问时间作为分界，更早访问的条目全部淘汰
+            List<LocalDateTime> cutoff = cacheRepository.findLastAccessTimes(PageRequest.of(maxEntries - 1, 1));
+            if (!cutoff.isEmpty()) {
+                long evicted = cacheRepository.deleteByLastAccessTimeBefore(cutoff.get(0));
+                logger.info("大模型响应缓存超过上限 {} 条，淘汰最久未使用的缓存 {} 条", maxEntries, evicted);
+            }
+        } catch (Exception e) {
+            logger.warn("清理大模型响应缓存失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 计算缓存键
+     */
+    public String buildKey(String model, Double temperature, String systemPrompt, String userPrompt) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String part : new String[] {model, String.valueOf(temperature), systemPrompt, userPrompt}) {
+                byte[] bytes = String.valueOf(part).getBytes(StandardCharsets.UTF_8);
+                // 写入长度前缀，避免不同拆分方式拼接出相同的内容
+                digest.update(Integer.toString(bytes.length).getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) ':');
+                digest.update(bytes);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256算法不可用", e);
+        }
+    }
+
+    /**
+     * 查询缓存的响应，依次查找内存和数据库，数据库命中后回填内存
+     */
+    public Optional<String> get(String key) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+
+        LlmResponseCacheEntry entry;
+        synchronized (memoryCache) {
+            entry = memoryCache.get(key);
+            if (entry != null && isExpired(entry)) {
+                memoryCache.remove(key);
+                entry = null;
+            }
+        }
+        if (entry != null) {
+            memoryHits.incrementAndGet();
+            logger.debug("大模型响应缓存命中（内存）: {}", key);
+            return Optional.of(entry.getResponse());
+        }
+
+        try {
+            entry = cacheRepository.findById(key).orElse(null);
+            if (entry != null && isExpired(entry)) {
+                cacheRepository.deleteById(key);
+                entry = null;
+            }
+            if (entry != null) {
+                entry.setLastAccessTime(LocalDateTime.now());
+                cacheRepository.save(entry);
+                synchronized (memoryCache) {
+                    memoryCache.put(key, entry);
+                }
+                databaseHits.incrementAndGet();
+                logger.debug("大模型响应缓存命中（数据库）: {}", key);
+                return Optional.of(entry.getResponse());
+            }
+        } catch (Exception e) {
+            logger.warn("读取大模型响应缓存失败，将直接调用大模型: {}", e.getMessage());
+        }
+
+        misses.incrementAndGet();
+        return Optional.empty();
+    }
+
+    /**
+     * 写入缓存，数据库写入失败不影响本次调用结果
+     */
+    public void put(String key, String model, String response) {
+        if (!enabled) {
+            return;
+        }
+        LlmResponseCacheEntry entry = new LlmResponseCacheEntry(key, model, response);
+        synchronized (memoryCache) {
+            memoryCache.put(key, entry);
+        }
+        try {
+            cacheRepository.save(entry);
+        } catch (Exception e) {
+            logger.warn("写入大模型响应缓存失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 获取缓存命中统计
+     */
+    public Map<String, Long> getStatistics() {
+        Map<String, Long> statistics = new LinkedHashMap<>();
+        statistics.put("memoryHits", memoryHits.get());
+        statistics.put("databaseHits", databaseHits.get());
+        statistics.put("misses", misses.get());
+        synchronized (memoryCache) {
+            statistics.put("memoryEntries", (long) memoryCache.size());
+        }
+        return statistics;
+    }
+
+    private boolean isExpired(LlmResponseCacheEntry entry) {
+        return entry.getCreatedTime() == null
+                || entry.getCreatedTime().isBefore(LocalDateTime.now().minus(ttl()));
+    }
+
+    private Duration ttl() {
+        return Duration.ofHours(ttlHours);
+    }
+}
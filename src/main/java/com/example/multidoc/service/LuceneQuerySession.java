@@ -0,0 +1,139 @@
+package com.example.multidoc.service;
+
+import com.example.multidoc.model.WordSentence;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.Directory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 一次相关性计算的查询会话
+ * 在整个计算过程中共享同一个索引读取器、搜索器、分析器和句子ID索引，
+ * 避免每个字段查询都重新打开索引和重建句子映射。
+ * 会话创建后只读，可由多个线程并发查询。
+ */
+public class LuceneQuerySession implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(LuceneQuerySession.class);
+
+    private static final String CONTENT_FIELD = "content";
+
+    /**
+     * 带Lucene评分（BM25）的检索结果
+     */
+    public static class ScoredSentence {
+
+        private final WordSentence sentence;
+        private final float score;
+
+        public ScoredSentence(WordSentence sentence, float score) {
+            this.sentence = sentence;
+            this.score = score;
+        }
+
+        public WordSentence getSentence() {
+            return sentence;
+        }
+
+        public float getScore() {
+            return score;
+        }
+    }
+
+    private final Directory directory;
+    private final Analyzer analyzer;
+    private final DirectoryReader reader;
+    private final IndexSearcher searcher;
+    private final Map<Long, WordSentence> sentenceMap;
+
+    /**
+     * @param directory 已建好的句子索引，会话关闭时一并关闭
+     * @param analyzer 建索引时使用的分析器，查询时使用同一分析器
+     * @param sentences 索引中的句子
+     */
+    public LuceneQuerySession(Directory directory, Analyzer analyzer, List<WordSentence> sentences) throws IOException {
+        this.directory = directory;
+        this.analyzer = analyzer;
+        this.reader = DirectoryReader.open(directory);
+        this.searcher = new IndexSearcher(reader);
+
+        Map<Long, WordSentence> map = new HashMap<>(sentences.size() * 2);
+        for (WordSentence sentence : sentences) {
+            map.put(sentence.getId(), sentence);
+        }
+        this.sentenceMap = map;
+    }
+
+    /**
+     * 按字段名称和描述查询最相关的句子
+     * @param fieldName 预处理后的字段名称
+     * @param description 预处理后的字段描述
+     * @param topK 返回的句子数量上限
+     * @return 按评分从高到低排列的句子
+     */
+    public List<ScoredSentence> search(String fieldName, String description, int topK) throws IOException, ParseException {
+        if ((fieldName == null || fieldName.isEmpty()) && (description == null || description.isEmpty())) {
+            return new ArrayList<>();
+        }
+
+        // QueryParser 不是线程安全的，每次查询单独创建
+        QueryParser parser = new QueryParser(CONTENT_FIELD, analyzer);
+
+        // 使用BooleanQuery来组合多个查询条件
+        BooleanQuery.Builder queryBuilder = new BooleanQuery.Builder();
+        if (fieldName != null && !fieldName.isEmpty()) {
+            Query nameQuery = parser.parse(QueryParser.escape(fieldName));
+            queryBuilder.add(nameQuery, BooleanClause.Occur.SHOULD);
+        }
+        if (description != null && !description.isEmpty()) {
+            Query descQuery = parser.parse(QueryParser.escape(description));
+            queryBuilder.add(descQuery, BooleanClause.Occur.SHOULD);
+        }
+
+        TopDocs results = searcher.search(queryBuilder.build(), topK);
+
+        // 转换结果
+        List<ScoredSentence> relevantSentences = new ArrayList<>();
+        for (ScoreDoc scoreDoc : results.scoreDocs) {
+            Document doc = searcher.storedFields().document(scoreDoc.doc);
+            String idStr = doc.get("id");
+            if (idStr != null) {
+                try {
+                    WordSentence sentence = sentenceMap.get(Long.parseLong(idStr));
+                    if (sentence != null) {
+                        relevantSentences.add(new ScoredSentence(sentence, scoreDoc.score));
+                    }
+                } catch (NumberFormatException e) {
+                    logger.warn("Invalid sentence ID format: {}", idStr);
+                }
+            }
+        }
+        return relevantSentences;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            reader.close();
+        } finally {
+            analyzer.close();
+            directory.close();
+        }
+    }
+}
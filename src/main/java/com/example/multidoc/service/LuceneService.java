@@ -3,201 +3,367 @@ package com.example.multidoc.service;
 import com.example.multidoc.model.ExcelField;
 import com.example.multidoc.model.WordSentence;
 import com.example.multidoc.model.FieldSentenceRelation;
-import com.example.multidoc.repository.FieldSentenceRelationRepository;
+import com.example.multidoc.repository.FieldSentenceRelationBatchRepository;
+import com.example.multidoc.util.JdbcBatchWriter;
+import com.example.multidoc.util.LuceneAnalyzerFactory;
 import org.apache.lucene.analysis.Analyzer;
-import org.apache.lucene.analysis.standard.StandardAnalyzer;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.document.TextField;
 import org.apache.lucene.index.DirectoryReader;
-import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.SegmentInfos;
 import org.apache.lucene.queryparser.classic.ParseException;
-import org.apache.lucene.queryparser.classic.QueryParser;
-import org.apache.lucene.search.BooleanClause;
-import org.apache.lucene.search.BooleanQuery;
-import org.apache.lucene.search.IndexSearcher;
-import org.apache.lucene.search.Query;
-import org.apache.lucene.search.ScoreDoc;
-import org.apache.lucene.search.TopDocs;
-import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.MMapDirectory;
 import org.apache.lucene.store.Directory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
-import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.util.FileSystemUtils;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
 
 @Service
 public class LuceneService {
 
     private static final Logger logger = LoggerFactory.getLogger(LuceneService.class);
-    private static final int TOP_K_RESULTS = 5; // 每个字段返回的相关句子数量
+    private static final long DRAIN_INTERVAL_MS = 50; // 检索期间写入已产生结果的间隔
+
+    private static final String USER_DATA_ANALYZER = "analyzer"; // 索引提交信息：分析器类型
+    private static final String USER_DATA_FINGERPRINT = "sentenceFingerprint"; // 索引提交信息：句子指纹
+
+    @Value("${app.upload.index-dir:./uploads/index}")
+    private String indexDir;
+
+    @Value("${app.lucene.ram-buffer-mb:64}")
+    private double ramBufferMb;
+
+    @Value("${app.lucene.max-results:5}")
+    private int maxResults;
+
+    @Value("${app.lucene.min-results:1}")
+    private int minResults;
+
+    @Value("${app.lucene.min-relative-score:0.3}")
+    private float minRelativeScore;
+
+    @Value("${app.lucene.min-score:0.0}")
+    private float minScore;
+
+    @Value("${app.lucene.analyzer:cjk}")
+    private String analyzerType;
+
+    @Value("${app.lucene.search-batch-size:32}")
+    private int searchBatchSize;
 
     @Autowired
-    private EntityManager entityManager;
-    
+    @Qualifier("relevanceSearchPool")
+    private ForkJoinPool relevanceSearchPool;
+
     @Autowired
-    private FieldSentenceRelationRepository relationRepository;
+    private FieldSentenceRelationBatchRepository relationBatchRepository;
 
     /**
      * 为给定的Excel字段和Word句子计算相关性
+     * 关联通过JDBC按批次写入，不经过持久化上下文
+     * @param taskId 任务ID，用于定位任务的持久化索引
      * @param fields Excel字段列表
      * @param sentences Word句子列表
-     * @return 字段和相关句子的映射
+     * @return 写入的关联数
      */
-    @Transactional
-    public Map<ExcelField, List<WordSentence>> calculateRelevance(List<ExcelField> fields, List<WordSentence> sentences) {
-        Map<ExcelField, List<WordSentence>> result = new HashMap<>();
-        
+    public long calculateRelevance(String taskId, List<ExcelField> fields, List<WordSentence> sentences) {
         try {
-            // 创建Lucene索引
-            Directory directory = createIndex(sentences);
-            
-            // 为每个字段搜索相关句子
+            // 清理这些字段之前计算的关联，避免恢复任务时重复写入
+            List<Long> fieldIds = new ArrayList<>();
             for (ExcelField field : fields) {
-                // 重新加载实体以确保在事务中
-                ExcelField managedField = entityManager.merge(field);
-                List<WordSentence> relevantSentences = searchRelevantSentences(directory, managedField, sentences, TOP_K_RESULTS);
-                
-                // 创建字段和句子之间的关系记录
-                for (WordSentence sentence : relevantSentences) {
-                    WordSentence managedSentence = entityManager.merge(sentence);
-                    
-                    // 创建新的关系记录
-                    FieldSentenceRelation relation = new FieldSentenceRelation();
-                    relation.setFieldId(managedField.getId());
-                    relation.setSentenceId(managedSentence.getId());
-                    relation.setFieldName(managedField.getFieldName());
-                    relation.setFieldType(managedField.getFieldType());
-                    relation.setFieldDescription(managedField.getDescription());
-                    relation.setSentenceContent(managedSentence.getContent());
-                    relation.setSourceFile(managedSentence.getSourceFile());
-                    relation.setRelevanceScore(1.0f); // 这里可以根据实际相关性评分设置
-                    
-                    relationRepository.save(relation);
+                fieldIds.add(field.getId());
+            }
+            int deleted = relationBatchRepository.deleteByFieldIds(fieldIds);
+            if (deleted > 0) {
+                logger.info("清理字段之前的 {} 条句子关联", deleted);
+            }
+
+            // 打开任务索引，整个计算过程共享同一个查询会话
+            try (LuceneQuerySession session = openTaskSession(taskId, sentences);
+                 JdbcBatchWriter<FieldSentenceRelation> writer = relationBatchRepository.openWriter()) {
+                // 字段检索按分治方式并行执行，结果放入无锁队列，由当前线程边检索边分批写入
+                Queue<FieldSentenceRelation> results = new ConcurrentLinkedQueue<>();
+                LongAdder unmatchedFields = new LongAdder();
+                ForkJoinTask<Void> search = relevanceSearchPool.submit(
+                        new RelevanceSearchTask(session, fields, 0, fields.size(), results, unmatchedFields));
+
+                while (!search.isDone()) {
+                    drainTo(results, writer);
+                    try {
+                        search.get(DRAIN_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                    } catch (TimeoutException e) {
+                        // 检索尚未结束，继续写入已产生的结果
+                    }
                 }
-                
-                result.put(managedField, relevantSentences);
+                search.get();
+                drainTo(results, writer);
+
+                writer.flush();
+                logger.info("共写入 {} 条字段与句子关联", writer.getWrittenCount());
+                if (unmatchedFields.sum() > 0) {
+                    logger.warn("{}/{} 个字段没有相关句子，规则提取时这些字段没有参考文本", unmatchedFields.sum(), fields.size());
+                }
+                return writer.getWrittenCount();
             }
-            
-            // 关闭索引
-            directory.close();
-            
         } catch (Exception e) {
             logger.error("计算相关性时出错", e);
             throw new RuntimeException("计算相关性失败: " + e.getMessage(), e);
         }
-        
-        return result;
+    }
+
+    /**
+     * 将队列中已产生的关联交给批量写入器
+     */
+    private void drainTo(Queue<FieldSentenceRelation> results, JdbcBatchWriter<FieldSentenceRelation> writer) {
+        FieldSentenceRelation relation;
+        while ((relation = results.poll()) != null) {
+            writer.add(relation);
+        }
+    }
+
+    /**
+     * 字段相关性检索任务，字段数超过阈值时对半拆分
+     */
+    private class RelevanceSearchTask extends RecursiveAction {
+
+        private final LuceneQuerySession session;
+        private final List<ExcelField> fields;
+        private final int from;
+        private final int to;
+        private final Queue<FieldSentenceRelation> results;
+        private final LongAdder unmatchedFields;
+
+        RelevanceSearchTask(LuceneQuerySession session, List<ExcelField> fields, int from, int to,
+                            Queue<FieldSentenceRelation> results, LongAdder unmatchedFields) {
+            this.session = session;
+            this.fields = fields;
+            this.from = from;
+            this.to = to;
+            this.results = results;
+            this.unmatchedFields = unmatchedFields;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > searchBatchSize) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new RelevanceSearchTask(session, fields, from, middle, results, unmatchedFields),
+                          new RelevanceSearchTask(session, fields, middle, to, results, unmatchedFields));
+                return;
+            }
+
+            for (int i = from; i < to; i++) {
+                ExcelField field = fields.get(i);
+                List<LuceneQuerySession.ScoredSentence> relevantSentences;
+                try {
+                    relevantSentences = selectRelevant(searchRelevantSentences(session, field, maxResults));
+                } catch (IOException | ParseException e) {
+                    throw new RuntimeException("检索字段 " + field.getFieldName() + " 的相关句子失败: " + e.getMessage(), e);
+                }
+
+                if (relevantSentences.isEmpty()) {
+                    unmatchedFields.increment();
+                }
+
+                // 创建字段和句子之间的关系记录，得分按该字段的最高分归一化
+                // 开启绝对下限时已在归一化之前按原始得分判断，弱匹配不会因归一化变为1.0
+                float topScore = relevantSentences.isEmpty() ? 0 : relevantSentences.get(0).getScore();
+                for (LuceneQuerySession.ScoredSentence hit : relevantSentences) {
+                    WordSentence sentence = hit.getSentence();
+                    FieldSentenceRelation relation = new FieldSentenceRelation();
+                    relation.setFieldId(field.getId());
+                    relation.setSentenceId(sentence.getId());
+                    relation.setFieldName(field.getFieldName());
+                    relation.setFieldType(field.getFieldType());
+                    relation.setFieldDescription(field.getDescription());
+                    relation.setSentenceContent(sentence.getContent());
+                    relation.setSourceFile(sentence.getSourceFile());
+                    relation.setRelevanceScore(topScore > 0 ? hit.getScore() / topScore : 0.0f);
+
+                    results.add(relation);
+                }
+            }
+        }
+    }
+
+    /**
+     * 打开任务的持久化索引，调用方负责关闭会话
+     * 索引以内存映射方式存放在上传目录下，句子和分析器未变化时直接复用，否则重建
+     */
+    public LuceneQuerySession openTaskSession(String taskId, List<WordSentence> sentences) throws IOException {
+        Path path = getTaskIndexPath(taskId);
+        Files.createDirectories(path);
+        Directory directory = new MMapDirectory(path);
+        String analyzerName = LuceneAnalyzerFactory.resolve(analyzerType);
+        Analyzer analyzer = LuceneAnalyzerFactory.create(analyzerName);
+        try {
+            String fingerprint = fingerprint(sentences);
+            if (isIndexReusable(directory, analyzerName, fingerprint)) {
+                logger.info("任务 {} 复用已有的Lucene索引: {}", taskId, path);
+            } else {
+                logger.info("任务 {} 建立Lucene索引: {}，共 {} 个句子", taskId, path, sentences.size());
+                createIndex(directory, analyzer, analyzerName, sentences, fingerprint);
+            }
+            return new LuceneQuerySession(directory, analyzer, sentences);
+        } catch (IOException | RuntimeException e) {
+            analyzer.close();
+            directory.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 在给定目录中为句子建立索引并打开查询会话，调用方负责关闭会话
+     */
+    LuceneQuerySession openSession(Directory directory, List<WordSentence> sentences) throws IOException {
+        String analyzerName = LuceneAnalyzerFactory.resolve(analyzerType);
+        Analyzer analyzer = LuceneAnalyzerFactory.create(analyzerName);
+        try {
+            createIndex(directory, analyzer, analyzerName, sentences, fingerprint(sentences));
+            return new LuceneQuerySession(directory, analyzer, sentences);
+        } catch (IOException | RuntimeException e) {
+            analyzer.close();
+            directory.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 删除任务的持久化索引
+     */
+    public void deleteTaskIndex(String taskId) {
+        Path path = getTaskIndexPath(taskId);
+        try {
+            if (FileSystemUtils.deleteRecursively(path)) {
+                logger.info("已删除任务 {} 的Lucene索引", taskId);
+            }
+        } catch (IOException e) {
+            logger.warn("删除任务 {} 的Lucene索引失败: {}", taskId, e.getMessage());
+        }
+    }
+
+    private Path getTaskIndexPath(String taskId) {
+        return Paths.get(indexDir).toAbsolutePath().resolve(taskId);
+    }
+
+    /**
+     * 已提交的索引是否由相同的句子和分析器建立
+     * @param analyzerName 实际使用的分析器类型
+     */
+    private boolean isIndexReusable(Directory directory, String analyzerName, String fingerprint) throws IOException {
+        if (!DirectoryReader.indexExists(directory)) {
+            return false;
+        }
+        Map<String, String> userData = SegmentInfos.readLatestCommit(directory).getUserData();
+        return analyzerName.equals(userData.get(USER_DATA_ANALYZER))
+                && fingerprint.equals(userData.get(USER_DATA_FINGERPRINT));
+    }
+
+    /**
+     * 根据句子ID和数量计算指纹，Word文档重新处理后句子ID会变化
+     */
+    private String fingerprint(List<WordSentence> sentences) {
+        long hash = 1;
+        for (WordSentence sentence : sentences) {
+            hash = 31 * hash + (sentence.getId() == null ? 0 : sentence.getId());
+        }
+        return sentences.size() + ":" + Long.toHexString(hash);
     }
     
     /**
      * 创建Lucene索引
      */
-    private Directory createIndex(List<WordSentence> sentences) throws IOException {
-        Directory directory = new ByteBuffersDirectory();
-        Analyzer analyzer = new StandardAnalyzer();
+    private void createIndex(Directory directory, Analyzer analyzer, String analyzerName,
+                             List<WordSentence> sentences, String fingerprint) throws IOException {
         IndexWriterConfig config = new IndexWriterConfig(analyzer);
         
         // 配置索引写入器
         config.setOpenMode(IndexWriterConfig.OpenMode.CREATE);
-        config.setRAMBufferSizeMB(256.0);
-        
-        IndexWriter writer = new IndexWriter(directory, config);
+        config.setRAMBufferSizeMB(ramBufferMb);
         
-        // 为每个句子创建文档
-        for (WordSentence sentence : sentences) {
-            Document doc = new Document();
-            
-            // 添加ID字段
-            doc.add(new StringField("id", String.valueOf(sentence.getId()), Field.Store.YES));
-            
-            // 预处理内容，移除特殊字符
-            String content = sentence.getContent();
-            if (content != null) {
-                // 移除所有特殊字符，只保留字母、数字、空格和基本标点
-                content = content.replaceAll("[^\\p{L}\\p{N}\\p{P}\\s]", " ");
-                // 移除多余的空格
-                content = content.replaceAll("\\s+", " ").trim();
+        try (IndexWriter writer = new IndexWriter(directory, config)) {
+            // 为每个句子创建文档
+            for (WordSentence sentence : sentences) {
+                Document doc = new Document();
+                
+                // 添加ID字段
+                doc.add(new StringField("id", String.valueOf(sentence.getId()), Field.Store.YES));
+                
+                // 预处理内容，移除特殊字符
+                String content = sentence.getContent();
+                if (content != null) {
+                    // 移除所有特殊字符，只保留字母、数字、空格和基本标点
+                    content = content.replaceAll("[^\\p{L}\\p{N}\\p{P}\\s]", " ");
+                    // 移除多余的空格
+                    content = content.replaceAll("\\s+", " ").trim();
+                    
+                    // 添加处理后的内容
+                    doc.add(new TextField("content", content, Field.Store.YES));
+                }
                 
-                // 添加处理后的内容
-                doc.add(new TextField("content", content, Field.Store.YES));
+                writer.addDocument(doc);
             }
-            
-            writer.addDocument(doc);
+
+            // 记录建索引时的句子指纹和分析器，供下次判断能否复用
+            writer.setLiveCommitData(Map.of(
+                    USER_DATA_ANALYZER, analyzerName,
+                    USER_DATA_FINGERPRINT, fingerprint).entrySet());
         }
-        
-        writer.close();
-        return directory;
     }
     
+    /**
+     * 自适应选取相关句子
+     * 结果按评分从高到低排列，BM25原始得分低于绝对下限、或低于最高分一定比例的句子被截断，
+     * 至少保留 minResults 个达到绝对下限的句子
+     */
+    List<LuceneQuerySession.ScoredSentence> selectRelevant(List<LuceneQuerySession.ScoredSentence> hits) {
+        List<LuceneQuerySession.ScoredSentence> selected = new ArrayList<>();
+        if (hits.isEmpty()) {
+            return selected;
+        }
+        float topScore = hits.get(0).getScore();
+        for (LuceneQuerySession.ScoredSentence hit : hits) {
+            if (hit.getScore() < minScore) {
+                break;
+            }
+            if (selected.size() >= minResults && hit.getScore() < topScore * minRelativeScore) {
+                break;
+            }
+            selected.add(hit);
+        }
+        return selected;
+    }
+
     /**
      * 搜索与给定字段相关的句子
      */
-    private List<WordSentence> searchRelevantSentences(Directory directory, ExcelField field, List<WordSentence> sentences, int topK) 
+    private List<LuceneQuerySession.ScoredSentence> searchRelevantSentences(LuceneQuerySession session, ExcelField field, int topK)
             throws IOException, ParseException {
-        
-        Map<Long, WordSentence> sentenceMap = sentences.stream()
-                .collect(HashMap::new, (map, sentence) -> map.put(sentence.getId(), sentence), HashMap::putAll);
-        
         // 预处理字段名称和描述
         String fieldName = preprocessText(field.getFieldName());
         String description = preprocessText(field.getDescription());
-        
-        if ((fieldName == null || fieldName.isEmpty()) && (description == null || description.isEmpty())) {
-            return new ArrayList<>();
-        }
-        
-        // 执行查询
-        IndexReader reader = DirectoryReader.open(directory);
-        IndexSearcher searcher = new IndexSearcher(reader);
-        Analyzer analyzer = new StandardAnalyzer();
-        
-        // 使用BooleanQuery来组合多个查询条件
-        BooleanQuery.Builder queryBuilder = new BooleanQuery.Builder();
-        
-        // 添加字段名称查询
-        if (fieldName != null && !fieldName.isEmpty()) {
-            Query nameQuery = new QueryParser("content", analyzer).parse(QueryParser.escape(fieldName));
-            queryBuilder.add(nameQuery, BooleanClause.Occur.SHOULD);
-        }
-        
-        // 添加描述查询
-        if (description != null && !description.isEmpty()) {
-            Query descQuery = new QueryParser("content", analyzer).parse(QueryParser.escape(description));
-            queryBuilder.add(descQuery, BooleanClause.Occur.SHOULD);
-        }
-        
-        // 执行查询
-        TopDocs results = searcher.search(queryBuilder.build(), topK);
-        
-        // 转换结果
-        List<WordSentence> relevantSentences = new ArrayList<>();
-        for (ScoreDoc scoreDoc : results.scoreDocs) {
-            Document doc = searcher.doc(scoreDoc.doc);
-            String idStr = doc.get("id");
-            if (idStr != null) {
-                try {
-                    Long id = Long.parseLong(idStr);
-                    WordSentence sentence = sentenceMap.get(id);
-                    if (sentence != null) {
-                        relevantSentences.add(sentence);
-                    }
-                } catch (NumberFormatException e) {
-                    logger.warn("Invalid sentence ID format: {}", idStr);
-                }
-            }
-        }
-        
-        reader.close();
-        return relevantSentences;
+        return session.search(fieldName, description, topK);
     }
     
     /**
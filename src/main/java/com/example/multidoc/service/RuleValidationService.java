@@ -5,13 +5,14 @@ import com.example.multidoc.model.FieldRule;
 import com.example.multidoc.model.RuleValidationResult;
 import com.example.multidoc.repository.RuleValidationResultRepository;
 import com.example.multidoc.util.ExcelProcessor;
+import com.example.multidoc.util.ResourceLimiter;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -23,6 +24,9 @@ import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 @Service
 public class RuleValidationService {
@@ -53,18 +57,27 @@ public class RuleValidationService {
     @Autowired
     private ExcelProcessor excelProcessor;
 
+    @Autowired
+    @Qualifier("analysisTaskExecutor")
+    private Executor analysisTaskExecutor;
+
+    @Autowired
+    @Qualifier("diskLimiter")
+    private ResourceLimiter diskLimiter;
+
     /**
      * 异步处理规则验证
+     * 上传的文件只在请求期间有效，因此先在请求线程中保存，其余处理交给分析任务执行器
      */
-    @Async("analysisTaskExecutor")
     public CompletableFuture<RuleValidationResult> validateRules(String taskId, List<MultipartFile> excelFiles) {
+        AnalysisTask task;
+        RuleValidationResult validationResult;
+        List<String> excelFilePaths = new ArrayList<>();
         try {
-            // 获取任务和现有规则
-            AnalysisTask task = analysisService.getTaskById(taskId);
-            List<FieldRule> existingRules = analysisService.getFieldRules(task);
+            task = analysisService.getTaskById(taskId);
             
             // 创建验证结果对象
-            RuleValidationResult validationResult = new RuleValidationResult();
+            validationResult = new RuleValidationResult();
             validationResult.setId(UUID.randomUUID().toString());
             validationResult.setTaskId(taskId);
             validationResult.setStartTime(LocalDateTime.now());
@@ -76,83 +89,112 @@ public class RuleValidationService {
             sendProgressUpdate(taskId, "开始处理验证", 0);
             
             // 保存上传的Excel文件
-            List<String> excelFilePaths = new ArrayList<>();
             for (MultipartFile file : excelFiles) {
-                String path = documentService.saveExcelDocument(file);
+                String path = diskLimiter.call(() -> documentService.saveExcelDocument(file));
                 excelFilePaths.add(path);
                 sendProgressUpdate(taskId, "保存Excel文件: " + file.getOriginalFilename(), 10);
             }
-            
-            // 转换Excel为MD格式
-            List<String> mdFilePaths = new ArrayList<>();
-            for (String excelPath : excelFilePaths) {
-                String mdPath = convertExcelToMd(excelPath);
-                mdFilePaths.add(mdPath);
-                sendProgressUpdate(taskId, "转换Excel到MD格式", 30);
-            }
-            
-            // 准备输入数据给AI模型
-            String rulesJson;
-            try {
-                // 简化规则对象，去掉task引用避免序列化问题
-                List<Map<String, Object>> simplifiedRules = new ArrayList<>();
-                for (FieldRule rule : existingRules) {
-                    Map<String, Object> simplified = new HashMap<>();
-                    simplified.put("id", rule.getId());
-                    simplified.put("ruleType", rule.getRuleType().toString());
-                    simplified.put("ruleContent", rule.getRuleContent());
-                    simplified.put("fieldNames", rule.getFieldNames());
-                    simplifiedRules.add(simplified);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(handleValidationFailure(taskId, e));
+        }
+        
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return processValidation(task, validationResult, excelFilePaths);
+                } catch (Exception e) {
+                    throw new CompletionException(handleValidationFailure(taskId, e));
                 }
-                rulesJson = objectMapper.writeValueAsString(simplifiedRules);
-            } catch (Exception e) {
-                throw new RuntimeException("规则序列化失败: " + e.getMessage(), e);
-            }
-            
-            StringBuilder mdContent = new StringBuilder();
-            for (String mdPath : mdFilePaths) {
-                mdContent.append(Files.readString(Paths.get(mdPath))).append("\n\n");
+            }, analysisTaskExecutor);
+        } catch (RejectedExecutionException e) {
+            // 线程池已满时直接返回失败，不在请求线程上执行验证
+            return CompletableFuture.failedFuture(handleValidationFailure(taskId, e));
+        }
+    }
+    
+    /**
+     * 转换已保存的Excel文件并调用AI模型验证规则
+     */
+    private RuleValidationResult processValidation(AnalysisTask task, RuleValidationResult validationResult,
+                                                   List<String> excelFilePaths) throws Exception {
+        String taskId = task.getId();
+        // 获取现有规则
+        List<FieldRule> existingRules = analysisService.getFieldRules(task);
+        
+        // 转换Excel为MD格式
+        List<String> mdFilePaths = new ArrayList<>();
+        for (String excelPath : excelFilePaths) {
+            String mdPath = diskLimiter.call(() -> convertExcelToMd(excelPath));
+            mdFilePaths.add(mdPath);
+            sendProgressUpdate(taskId, "转换Excel到MD格式", 30);
+        }
+        
+        // 准备输入数据给AI模型
+        String rulesJson;
+        try {
+            // 简化规则对象，去掉task引用避免序列化问题
+            List<Map<String, Object>> simplifiedRules = new ArrayList<>();
+            for (FieldRule rule : existingRules) {
+                Map<String, Object> simplified = new HashMap<>();
+                simplified.put("id", rule.getId());
+                simplified.put("ruleType", rule.getRuleType().toString());
+                simplified.put("ruleContent", rule.getRuleContent());
+                simplified.put("fieldNames", rule.getFieldNames());
+                simplifiedRules.add(simplified);
             }
-            
-            sendProgressUpdate(taskId, "准备调用AI模型", 50);
-            
-            // 调用AI模型进行验证
-            JsonNode validationResults = aiService.validateRules(rulesJson, mdContent.toString());
-            
-            sendProgressUpdate(taskId, "AI模型处理完成", 80);
-            
-            // 处理AI结果
-            validationResult.setValidatedRules(validationResults.toString());
-            validationResult.setEndTime(LocalDateTime.now());
-            validationResult.setStatus("COMPLETED");
-            validationResult.setProgress(100);
-            validationResultRepository.save(validationResult);
-            
-            sendProgressUpdate(taskId, "验证完成", 100);
-            
-            return CompletableFuture.completedFuture(validationResult);
-            
+            rulesJson = objectMapper.writeValueAsString(simplifiedRules);
         } catch (Exception e) {
-            logger.error("验证规则失败", e);
-            sendProgressUpdate(taskId, "验证失败: " + e.getMessage(), -1);
-            
-            // 更新验证结果为失败状态
-            RuleValidationResult result = validationResultRepository.findByTaskId(taskId)
-                    .orElseGet(() -> {
-                        RuleValidationResult newResult = new RuleValidationResult();
-                        newResult.setId(UUID.randomUUID().toString());
-                        newResult.setTaskId(taskId);
-                        newResult.setStartTime(LocalDateTime.now());
-                        return newResult;
-                    });
-            
-            result.setStatus("FAILED");
-            result.setErrorMessage(e.getMessage());
-            result.setEndTime(LocalDateTime.now());
-            validationResultRepository.save(result);
-            
-            return CompletableFuture.failedFuture(e);
+            throw new RuntimeException("规则序列化失败: " + e.getMessage(), e);
         }
+        
+        StringBuilder mdContent = new StringBuilder();
+        for (String mdPath : mdFilePaths) {
+            mdContent.append(Files.readString(Paths.get(mdPath))).append("\n\n");
+        }
+        
+        sendProgressUpdate(taskId, "准备调用AI模型", 50);
+        
+        // 调用AI模型进行验证
+        JsonNode validationResults = aiService.validateRules(rulesJson, mdContent.toString());
+        
+        sendProgressUpdate(taskId, "AI模型处理完成", 80);
+        
+        // 处理AI结果
+        validationResult.setValidatedRules(validationResults.toString());
+        validationResult.setEndTime(LocalDateTime.now());
+        validationResult.setStatus("COMPLETED");
+        validationResult.setProgress(100);
+        validationResultRepository.save(validationResult);
+        
+        sendProgressUpdate(taskId, "验证完成", 100);
+        
+        return validationResult;
+    }
+    
+    /**
+     * 记录验证失败状态
+     */
+    private Exception handleValidationFailure(String taskId, Exception e) {
+        logger.error("验证规则失败", e);
+        
+        // 更新验证结果为失败状态
+        RuleValidationResult result = validationResultRepository.findByTaskId(taskId)
+                .orElseGet(() -> {
+                    RuleValidationResult newResult = new RuleValidationResult();
+                    newResult.setId(UUID.randomUUID().toString());
+                    newResult.setTaskId(taskId);
+                    newResult.setStartTime(LocalDateTime.now());
+                    return newResult;
+                });
+        
+        result.setStatus("FAILED");
+        result.setErrorMessage(e.getMessage());
+        result.setEndTime(LocalDateTime.now());
+        validationResultRepository.save(result);
+        // 状态保存后再推送，页面收到后查询到的是失败状态
+        sendProgressUpdate(taskId, "验证失败: " + e.getMessage(), -1);
+        
+        return e;
     }
     
     /**
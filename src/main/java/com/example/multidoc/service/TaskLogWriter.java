@@ -0,0 +1,206 @@
+package com.example.multidoc.service;
+
+import com.example.multidoc.model.TaskLog;
+import com.example.multidoc.repository.TaskLogBatchRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 异步任务日志写入器
+ * 流水线线程只把日志放入有界环形队列，由一个后台线程取出，攒够一批或等待超过刷新间隔后批量插入，
+ * 流水线线程不等待数据库写入。写入后的日志推送给订阅该任务进度的页面。
+ * 队列已满时，INFO、DEBUG 日志直接丢弃并计数；WARN、ERROR 日志最多等待 offerTimeoutMs，仍无空间才丢弃。
+ * flush() 返回时，调用前已放入队列的日志都已写入。
+ */
+@Component
+public class TaskLogWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(TaskLogWriter.class);
+
+    private static final long FLUSH_TIMEOUT_SECONDS = 30;
+
+    @Autowired
+    private TaskLogBatchRepository taskLogBatchRepository;
+
+    @Autowired
+    private TaskProgressPublisher taskProgressPublisher;
+
+    @Value("${app.task-log.buffer-size:10000}")
+    private int bufferSize;
+
+    @Value("${app.task-log.batch-size:200}")
+    private int batchSize;
+
+    @Value("${app.task-log.flush-interval-ms:200}")
+    private long flushIntervalMs;
+
+    @Value("${app.task-log.offer-timeout-ms:1000}")
+    private long offerTimeoutMs;
+
+    private BlockingQueue<Entry> queue;
+    private Thread writerThread;
+    private volatile boolean running;
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    /**
+     * 队列元素：一条日志，或一个刷新请求
+     */
+    private static final class Entry {
+
+        private final TaskLog log;
+        private final CompletableFuture<Void> flushed;
+
+        private Entry(TaskLog log, CompletableFuture<Void> flushed) {
+            this.log = log;
+            this.flushed = flushed;
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        queue = new ArrayBlockingQueue<>(bufferSize);
+        running = true;
+        writerThread = new Thread(this::drainLoop, "task-log-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * 写入全部剩余日志后停止后台线程
+     */
+    @PreDestroy
+    public void stop() {
+        flush();
+        running = false;
+        writerThread.interrupt();
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(FLUSH_TIMEOUT_SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 放入一条日志，不等待写入
+     */
+    public void append(TaskLog log) {
+        Entry entry = new Entry(log, null);
+        if (queue.offer(entry)) {
+            return;
+        }
+        if (isImportant(log.getLogLevel())) {
+            try {
+                if (queue.offer(entry, offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        long dropped = droppedCount.incrementAndGet();
+        if (dropped == 1 || dropped % 1000 == 0) {
+            logger.warn("任务日志队列已满，累计丢弃 {} 条日志", dropped);
+        }
+    }
+
+    /**
+     * 等待调用前已放入队列的日志全部写入
+     */
+    public void flush() {
+        if (writerThread == null || !writerThread.isAlive()) {
+            return;
+        }
+        CompletableFuture<Void> flushed = new CompletableFuture<>();
+        try {
+            queue.put(new Entry(null, flushed));
+            flushed.get(FLUSH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            logger.warn("等待任务日志写入超时或失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 因队列已满丢弃的日志数
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    private static boolean isImportant(String level) {
+        return "ERROR".equalsIgnoreCase(level) || "WARN".equalsIgnoreCase(level);
+    }
+
+    private void drainLoop() {
+        List<TaskLog> batch = new ArrayList<>(batchSize);
+        List<CompletableFuture<Void>> flushRequests = new ArrayList<>();
+        while (true) {
+            try {
+                Entry first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                accept(first, batch, flushRequests);
+
+                // 攒够一批、超过刷新间隔或有刷新请求时写入
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+                while (batch.size() < batchSize && flushRequests.isEmpty()) {
+                    long remaining = deadline - System.nanoTime();
+                    Entry next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    accept(next, batch, flushRequests);
+                }
+            } catch (InterruptedException e) {
+                if (!running) {
+                    // 停止时写入队列中剩余的日志
+                    List<Entry> remaining = new ArrayList<>();
+                    queue.drainTo(remaining);
+                    remaining.forEach(entry -> accept(entry, batch, flushRequests));
+                    write(batch, flushRequests);
+                    return;
+                }
+            }
+            write(batch, flushRequests);
+        }
+    }
+
+    private void accept(Entry entry, List<TaskLog> batch, List<CompletableFuture<Void>> flushRequests) {
+        if (entry.log != null) {
+            batch.add(entry.log);
+        } else {
+            flushRequests.add(entry.flushed);
+        }
+    }
+
+    private void write(List<TaskLog> batch, List<CompletableFuture<Void>> flushRequests) {
+        if (!batch.isEmpty()) {
+            try {
+                taskLogBatchRepository.insertBatch(batch);
+                taskProgressPublisher.publishLogs(batch);
+            } catch (RuntimeException e) {
+                logger.error("批量写入任务日志失败，丢弃 {} 条日志", batch.size(), e);
+            }
+            batch.clear();
+        }
+        flushRequests.forEach(flushed -> flushed.complete(null));
+        flushRequests.clear();
+    }
+}
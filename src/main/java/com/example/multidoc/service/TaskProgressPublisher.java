@@ -0,0 +1,80 @@
+package com.example.multidoc.service;
+
+import com.example.multidoc.model.AnalysisTask;
+import com.example.multidoc.model.TaskLog;
+import com.example.multidoc.model.TaskLogEntry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 分析任务进度推送
+ * 进度变化和新写入的日志通过STOMP推送到 /topic/task/{taskId}，页面订阅后只接收增量，
+ * 连接不可用时页面改用 /api/task/{id}/progress?after= 按游标拉取
+ */
+@Service
+public class TaskProgressPublisher {
+
+    private static final Logger logger = LoggerFactory.getLogger(TaskProgressPublisher.class);
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    /**
+     * 任务进度话题
+     */
+    public static String destination(String taskId) {
+        return "/topic/task/" + taskId;
+    }
+
+    /**
+     * 推送任务进度和状态
+     */
+    public void publishProgress(AnalysisTask task, String step, String message) {
+        Map<String, Object> progressData = new HashMap<>();
+        progressData.put("type", "progress");
+        progressData.put("taskId", task.getId());
+        progressData.put("status", task.getStatus() != null ? task.getStatus().name() : null);
+        progressData.put("overallProgress", task.getProgress());
+        progressData.put("currentStep", step);
+        progressData.put("currentStepMessage", message);
+        progressData.put("timestamp", LocalDateTime.now().toString());
+        send(task.getId(), progressData);
+    }
+
+    /**
+     * 推送新写入的日志，每个任务一条消息，cursor 为其中最后一条日志的ID
+     */
+    public void publishLogs(List<TaskLog> logs) {
+        Map<String, List<TaskLog>> logsByTask = new LinkedHashMap<>();
+        for (TaskLog log : logs) {
+            logsByTask.computeIfAbsent(log.getTask().getId(), id -> new ArrayList<>()).add(log);
+        }
+        logsByTask.forEach((taskId, taskLogs) -> {
+            Map<String, Object> logData = new HashMap<>();
+            logData.put("type", "logs");
+            logData.put("taskId", taskId);
+            logData.put("logs", taskLogs.stream().map(TaskLogEntry::from).toList());
+            logData.put("cursor", taskLogs.get(taskLogs.size() - 1).getId());
+            send(taskId, logData);
+        });
+    }
+
+    private void send(String taskId, Map<String, Object> payload) {
+        try {
+            messagingTemplate.convertAndSend(destination(taskId), payload);
+        } catch (MessagingException e) {
+            logger.warn("推送任务进度失败: {} - {}", taskId, e.getMessage());
+        }
+    }
+}
@@ -1,14 +1,16 @@
 package com.example.multidoc.service;
 
 import com.example.multidoc.model.AnalysisTask;
-import com.example.multidoc.model.TaskLog;
+import com.example.multidoc.model.TaskLogEntry;
 
 import java.util.List;
 
 public interface TaskService {
     AnalysisTask getTaskById(String id);
-    List<TaskLog> getTaskLogs(String taskId);
+    List<TaskLogEntry> getTaskLogsAfter(String taskId, long afterId, int limit);
+    List<TaskLogEntry> getLatestTaskLogs(String taskId, int limit);
     void addLog(AnalysisTask task, String message, String level);
+    void flushLogs();
     void updateTaskProgress(AnalysisTask task, int progress);
     void updateTaskStatus(AnalysisTask task, String status);
 } 
\ No newline at end of file
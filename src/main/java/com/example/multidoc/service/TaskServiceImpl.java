@@ -2,12 +2,16 @@ package com.example.multidoc.service;
 
 import com.example.multidoc.model.AnalysisTask;
 import com.example.multidoc.model.TaskLog;
+import com.example.multidoc.model.TaskLogEntry;
 import com.example.multidoc.repository.AnalysisTaskRepository;
 import com.example.multidoc.repository.TaskLogRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 @Service
@@ -19,26 +23,47 @@ public class TaskServiceImpl implements TaskService {
     @Autowired
     private TaskLogRepository logRepository;
 
+    @Autowired
+    private TaskLogWriter taskLogWriter;
+
     @Override
     public AnalysisTask getTaskById(String id) {
         return taskRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Task not found: " + id));
     }
 
+    /**
+     * 获取ID大于游标的日志，按写入顺序排列，最多 limit 条
+     */
     @Override
-    public List<TaskLog> getTaskLogs(String taskId) {
-        return logRepository.findByTaskIdOrderByTimestampAsc(taskId);
+    public List<TaskLogEntry> getTaskLogsAfter(String taskId, long afterId, int limit) {
+        return logRepository.findEntriesAfter(taskId, afterId, PageRequest.of(0, limit));
     }
 
+    /**
+     * 获取最近的 limit 条日志，按写入顺序排列
+     */
+    @Override
+    public List<TaskLogEntry> getLatestTaskLogs(String taskId, int limit) {
+        List<TaskLogEntry> logs = new ArrayList<>(logRepository.findLatestEntries(taskId, PageRequest.of(0, limit)));
+        Collections.reverse(logs);
+        return logs;
+    }
+
+    /**
+     * 日志交给异步写入器批量落库，不阻塞调用线程
+     */
     @Override
-    @Transactional
     public void addLog(AnalysisTask task, String message, String level) {
-        TaskLog log = new TaskLog(task, message, level);
-        try {
-            logRepository.save(log);
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+        taskLogWriter.append(new TaskLog(task, message, level));
+    }
+
+    /**
+     * 等待已提交的日志全部写入
+     */
+    @Override
+    public void flushLogs() {
+        taskLogWriter.flush();
     }
 
     @Override
@@ -8,15 +8,20 @@ import org.apache.poi.ss.util.CellRangeAddress;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import java.util.regex.Pattern;
 
 @Component
@@ -31,6 +36,12 @@ public class ExcelProcessor {
     // 最小中文字符比例（超过这个比例才认为是中文描述）
     private static final double MIN_CHINESE_RATIO = 0.3;
 
+    private static final long BYTES_PER_MB = 1024L * 1024L;
+
+    // 文件大小达到该值（MB）时改用流式读取，0表示总是使用流式读取
+    @Value("${app.excel.streaming-threshold-mb:20}")
+    private long streamingThresholdMb;
+
     public ExcelProcessor() {
         this.documentParser = new ApachePoiDocumentParser();
     }
@@ -75,15 +86,63 @@ public class ExcelProcessor {
 
     /**
      * 提取Excel中的所有要素（仅保留中文描述）
+     * 大文件使用SAX流式读取，避免构建整个工作簿的对象模型
      * @param filePath Excel文件路径
      * @return 要素信息列表
      */
     public List<ElementInfo> extractFields(String filePath) {
+        File file = new File(filePath);
+        if (useStreaming(file)) {
+            try {
+                return new StreamingExcelReader(this::containsChineseCharacters).read(file);
+            } catch (IOException e) {
+                logger.error("提取Excel要素信息失败: " + filePath, e);
+                return new ArrayList<>();
+            }
+        }
+        return extractFieldsFromWorkbook(file);
+    }
+
+    /**
+     * 在执行器中提取Excel中的所有要素（仅保留中文描述）
+     * 流式读取的大文件各工作表并行解析；对象模型读取的小文件加载工作簿是主要开销，整个文件作为一个任务
+     * @param filePath Excel文件路径
+     * @param executor 解析使用的执行器
+     * @return 按工作表顺序排列的要素信息列表
+     */
+    public CompletableFuture<List<ElementInfo>> extractFieldsAsync(String filePath, Executor executor) {
+        File file = new File(filePath);
+        if (!useStreaming(file)) {
+            return CompletableFuture.supplyAsync(() -> extractFieldsFromWorkbook(file), executor);
+        }
+        return new StreamingExcelReader(this::containsChineseCharacters).readAsync(file, executor)
+                .exceptionally(e -> {
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    if (cause instanceof UncheckedIOException) {
+                        logger.error("提取Excel要素信息失败: " + filePath, cause.getCause());
+                        return new ArrayList<>();
+                    }
+                    throw e instanceof CompletionException ? (CompletionException) e : new CompletionException(e);
+                });
+    }
+
+    private boolean useStreaming(File file) {
+        if (file.length() >= streamingThresholdMb * BYTES_PER_MB) {
+            logger.info("Excel文件较大（{} KB），使用流式读取: {}", file.length() / 1024, file.getPath());
+            return true;
+        }
+        return false;
+    }
+
+    private List<ElementInfo> extractFieldsFromWorkbook(File file) {
         List<ElementInfo> elements = new ArrayList<>();
         
-        try (FileInputStream fis = new FileInputStream(new File(filePath));
+        try (FileInputStream fis = new FileInputStream(file);
              Workbook workbook = new XSSFWorkbook(fis)) {
             
+            // 字体信息按单元格样式缓存
+            Map<Short, FontFlags> fontFlagsByStyle = new HashMap<>();
+            
             for (int sheetIndex = 0; sheetIndex < workbook.getNumberOfSheets(); sheetIndex++) {
                 Sheet sheet = workbook.getSheetAt(sheetIndex);
                 String sheetName = sheet.getSheetName();
@@ -135,10 +194,9 @@ public class ExcelProcessor {
                         
                         // 获取单元格样式信息
                         CellStyle style = cell.getCellStyle();
-                        Font font = workbook.getFontAt(style.getFontIndex());
-                        element.setFontBold(font.getBold());
-                        element.setFontItalic(font.getItalic());
-                        element.setFontSize(font.getFontHeightInPoints());
+                        fontFlagsByStyle.computeIfAbsent(style.getIndex(),
+                                index -> new FontFlags(workbook.getFontAt(style.getFontIndex())))
+                                .applyTo(element);
                         
                         // 获取单元格的公式（如果有）
                         if (cell.getCellType() == CellType.FORMULA) {
@@ -161,7 +219,7 @@ public class ExcelProcessor {
             }
             
         } catch (IOException e) {
-            logger.error("提取Excel要素信息失败: " + filePath, e);
+            logger.error("提取Excel要素信息失败: " + file.getPath(), e);
         }
         
         return elements;
@@ -203,6 +261,34 @@ public class ExcelProcessor {
         }
     }
 
+    /**
+     * 单元格样式对应的字体标志
+     */
+    static final class FontFlags {
+
+        static final FontFlags DEFAULT = new FontFlags(false, false, 11);
+
+        private final boolean bold;
+        private final boolean italic;
+        private final int size;
+
+        FontFlags(Font font) {
+            this(font.getBold(), font.getItalic(), font.getFontHeightInPoints());
+        }
+
+        private FontFlags(boolean bold, boolean italic, int size) {
+            this.bold = bold;
+            this.italic = italic;
+            this.size = size;
+        }
+
+        void applyTo(ElementInfo element) {
+            element.setFontBold(bold);
+            element.setFontItalic(italic);
+            element.setFontSize(size);
+        }
+    }
+
     /**
      * Excel要素信息类
      */
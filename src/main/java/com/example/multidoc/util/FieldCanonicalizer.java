@@ -0,0 +1,90 @@
+package com.example.multidoc.util;
+
+import com.example.multidoc.model.ExcelField;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 字段规范化去重
+ * 字段文本经全半角归一、去除空白和小写化后作为键，相同键的字段只保留首次出现的一个送去分类，
+ * 分类结果再按键分发到该字段在各表中的所有出现位置。
+ */
+public class FieldCanonicalizer {
+
+    // 规范化文本 → 该字段在各表中的出现位置（同一表中的重复只保留一个）
+    private final Map<String, List<ExcelField>> occurrencesByKey = new LinkedHashMap<>();
+    private final Set<String> seenOccurrences = new HashSet<>();
+    private int fieldCount;
+
+    /**
+     * 规范化字段文本：全角转半角、去除所有空白、英文小写
+     */
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFKC);
+        StringBuilder key = new StringBuilder(normalized.length());
+        for (int i = 0; i < normalized.length(); i++) {
+            char c = normalized.charAt(i);
+            if (!Character.isWhitespace(c) && !Character.isSpaceChar(c)) {
+                key.append(Character.toLowerCase(c));
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * 加入一个字段
+     */
+    public void add(ExcelField field) {
+        fieldCount++;
+        String key = normalize(field.getFieldName());
+        if (key.isEmpty()) {
+            return;
+        }
+        if (seenOccurrences.add(field.getTableName() + "\u0001" + key)) {
+            occurrencesByKey.computeIfAbsent(key, k -> new ArrayList<>()).add(field);
+        }
+    }
+
+    /**
+     * 去重后的字段，每个规范化文本取首次出现的字段，保持原始顺序
+     */
+    public List<ExcelField> getUniqueFields() {
+        List<ExcelField> uniqueFields = new ArrayList<>(occurrencesByKey.size());
+        for (List<ExcelField> occurrences : occurrencesByKey.values()) {
+            uniqueFields.add(occurrences.get(0));
+        }
+        return uniqueFields;
+    }
+
+    /**
+     * 与给定字段名规范化后相同的所有出现位置，没有时返回空列表
+     */
+    public List<ExcelField> getOccurrences(String fieldName) {
+        List<ExcelField> occurrences = occurrencesByKey.get(normalize(fieldName));
+        return occurrences != null ? Collections.unmodifiableList(occurrences) : Collections.emptyList();
+    }
+
+    /**
+     * 加入的字段总数
+     */
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * 去重后的字段数
+     */
+    public int getUniqueCount() {
+        return occurrencesByKey.size();
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.multidoc.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 增量JSON解析器
+ * 流式接收大模型输出时逐段校验JSON结构，格式错误在出现的那一段立即报错，
+ * 无需等待完整响应。第一个 '{' 之前的内容（如Markdown代码块标记）以及根对象结束之后的内容会被忽略。
+ */
+public class IncrementalJsonParser {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final JsonParser parser;
+    private final ByteArrayFeeder feeder;
+
+    private boolean started;
+    private boolean complete;
+    private int depth;
+
+    public IncrementalJsonParser() {
+        try {
+            this.parser = JSON_FACTORY.createNonBlockingByteArrayParser();
+        } catch (IOException e) {
+            throw new IllegalStateException("创建增量JSON解析器失败", e);
+        }
+        this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+    }
+
+    /**
+     * 输入一段新到达的文本
+     * @throws IOException 已到达的内容不是合法的JSON
+     */
+    public void feed(String chunk) throws IOException {
+        if (complete || chunk == null || chunk.isEmpty()) {
+            return;
+        }
+        if (!started) {
+            int start = chunk.indexOf('{');
+            if (start < 0) {
+                return;
+            }
+            chunk = chunk.substring(start);
+            started = true;
+        }
+
+        byte[] bytes = chunk.getBytes(StandardCharsets.UTF_8);
+        feeder.feedInput(bytes, 0, bytes.length);
+        JsonToken token;
+        while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+            if (token.isStructStart()) {
+                depth++;
+            } else if (token.isStructEnd()) {
+                depth--;
+                if (depth == 0) {
+                    // 根对象已结束，后续内容不再解析
+                    complete = true;
+                    feeder.endOfInput();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * 是否已出现JSON根对象的起始
+     */
+    public boolean isStarted() {
+        return started;
+    }
+
+    /**
+     * 根对象是否已完整结束
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+}
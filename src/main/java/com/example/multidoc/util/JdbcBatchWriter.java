@@ -0,0 +1,66 @@
+package com.example.multidoc.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 批量写入缓冲区
+ * 逐条接收待写入的记录，累计到批次大小后整批交给写入函数，关闭时写入剩余记录。
+ * 调用方可以边解析边写入，不必在内存中保留全部记录。
+ */
+public class JdbcBatchWriter<T> implements AutoCloseable {
+
+    private final int batchSize;
+    private final Consumer<List<T>> batchConsumer;
+    private final List<T> buffer;
+    private long writtenCount;
+
+    /**
+     * @param batchSize 每批写入的记录数
+     * @param batchConsumer 批量写入函数
+     */
+    public JdbcBatchWriter(int batchSize, Consumer<List<T>> batchConsumer) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("批次大小必须为正数: " + batchSize);
+        }
+        this.batchSize = batchSize;
+        this.batchConsumer = batchConsumer;
+        this.buffer = new ArrayList<>(batchSize);
+    }
+
+    /**
+     * 添加一条记录，缓冲区已满时立即写入
+     */
+    public void add(T record) {
+        buffer.add(record);
+        if (buffer.size() >= batchSize) {
+            flush();
+        }
+    }
+
+    /**
+     * 写入缓冲区中的全部记录
+     */
+    public void flush() {
+        if (buffer.isEmpty()) {
+            return;
+        }
+        List<T> batch = new ArrayList<>(buffer);
+        buffer.clear();
+        batchConsumer.accept(batch);
+        writtenCount += batch.size();
+    }
+
+    /**
+     * 已写入的记录数
+     */
+    public long getWrittenCount() {
+        return writtenCount;
+    }
+
+    @Override
+    public void close() {
+        flush();
+    }
+}
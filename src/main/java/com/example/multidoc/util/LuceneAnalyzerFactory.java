@@ -0,0 +1,84 @@
+package com.example.multidoc.util;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.cjk.CJKAnalyzer;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Lucene分析器工厂
+ * 建索引和查询必须使用同一种分析器，统一由此处按配置创建：
+ * <ul>
+ *   <li>standard：StandardAnalyzer，中文按单字切分</li>
+ *   <li>cjk：中文按相邻两字（bigram）切分，并做全半角归一和小写化</li>
+ *   <li>smartcn：基于词典的中文分词，需要在classpath中加入 lucene-analysis-smartcn，缺失时退回cjk</li>
+ * </ul>
+ */
+public final class LuceneAnalyzerFactory {
+
+    private static final Logger logger = LoggerFactory.getLogger(LuceneAnalyzerFactory.class);
+
+    public static final String STANDARD = "standard";
+    public static final String CJK = "cjk";
+    public static final String SMARTCN = "smartcn";
+
+    private static final String SMARTCN_CLASS = "org.apache.lucene.analysis.cn.smart.SmartChineseAnalyzer";
+
+    private LuceneAnalyzerFactory() {
+    }
+
+    /**
+     * 实际使用的分析器类型：smartcn 不可用时为 cjk
+     * 索引中应记录这里返回的类型，而不是配置值，避免按配置名复用由其他分析器建立的索引
+     * @param type 分析器类型，为空时使用cjk
+     */
+    public static String resolve(String type) {
+        String normalized = type == null || type.isBlank() ? CJK : type.trim().toLowerCase();
+        switch (normalized) {
+            case STANDARD:
+            case CJK:
+                return normalized;
+            case SMARTCN:
+                if (isSmartChineseAvailable()) {
+                    return SMARTCN;
+                }
+                logger.warn("classpath中没有 lucene-analysis-smartcn，词典分词不可用，改用cjk分析器");
+                return CJK;
+            default:
+                throw new IllegalArgumentException("不支持的分析器类型: " + type);
+        }
+    }
+
+    /**
+     * 按实际类型创建新的分析器，调用方负责关闭
+     * @param type 分析器类型，为空时使用cjk
+     */
+    public static Analyzer create(String type) {
+        switch (resolve(type)) {
+            case STANDARD:
+                return new StandardAnalyzer();
+            case SMARTCN:
+                return createSmartChineseAnalyzer();
+            default:
+                return new CJKAnalyzer();
+        }
+    }
+
+    private static boolean isSmartChineseAvailable() {
+        try {
+            Class.forName(SMARTCN_CLASS, false, LuceneAnalyzerFactory.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    private static Analyzer createSmartChineseAnalyzer() {
+        try {
+            return (Analyzer) Class.forName(SMARTCN_CLASS).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("创建词典分词分析器失败: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.multidoc.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * 下游资源并发限制器
+ * 基于信号量限制同时访问某类资源（大模型、数据库、磁盘）的操作数，
+ * 任务线程数不再决定并发度，即使使用虚拟线程也不会压垮下游资源。
+ */
+public class ResourceLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResourceLimiter.class);
+
+    /**
+     * 受限操作，允许抛出受检异常
+     */
+    @FunctionalInterface
+    public interface LimitedOperation<T, E extends Exception> {
+        T execute() throws E;
+    }
+
+    /**
+     * 无返回值的受限操作，允许抛出受检异常
+     */
+    @FunctionalInterface
+    public interface LimitedTask<E extends Exception> {
+        void execute() throws E;
+    }
+
+    private final String name;
+    private final Semaphore semaphore;
+
+    /**
+     * @param name 资源名称，用于日志
+     * @param maxConcurrency 同时访问该资源的操作数上限
+     */
+    public ResourceLimiter(String name, int maxConcurrency) {
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("并发上限必须为正数: " + name + "=" + maxConcurrency);
+        }
+        this.name = name;
+        this.semaphore = new Semaphore(maxConcurrency, true);
+    }
+
+    /**
+     * 获取许可后执行操作，执行结束后释放许可
+     */
+    public <T, E extends Exception> T call(LimitedOperation<T, E> operation) throws E {
+        try {
+            if (!semaphore.tryAcquire()) {
+                logger.debug("资源 {} 并发已满，等待许可", name);
+                semaphore.acquire();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("等待资源 " + name + " 的并发许可时中断", e);
+        }
+        try {
+            return operation.execute();
+        } finally {
+            semaphore.release();
+        }
+    }
+
+    /**
+     * 获取许可后执行无返回值的操作
+     */
+    public <E extends Exception> void run(LimitedTask<E> task) throws E {
+        call(() -> {
+            task.execute();
+            return null;
+        });
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int availablePermits() {
+        return semaphore.availablePermits();
+    }
+}
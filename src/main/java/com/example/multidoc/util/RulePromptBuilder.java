@@ -0,0 +1,237 @@
+package com.example.multidoc.util;
+
+import com.example.multidoc.model.ExcelField;
+import com.example.multidoc.model.FieldSentenceRelation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 规则提取提示构建器
+ * 按本地估算的token数控制提示大小：句子按相关性得分从高到低装入预算，
+ * 单个提示放不下的分类按字段拆分为多个子请求，各子请求的规则由调用方合并。
+ * 预算按构建出的完整提示计算，包括分类行和各段标题；
+ * 调用方在提示之外附加的系统提示和规则提取说明不在预算内，需在设置预算时自行预留。
+ */
+public class RulePromptBuilder {
+
+    /**
+     * 一个子请求的提示及其涉及的字段
+     */
+    public static class RulePrompt {
+
+        private final List<ExcelField> fields;
+        private final String content;
+        private final int includedSentences;
+        private final int omittedSentences;
+
+        RulePrompt(List<ExcelField> fields, String content, int includedSentences, int omittedSentences) {
+            this.fields = fields;
+            this.content = content;
+            this.includedSentences = includedSentences;
+            this.omittedSentences = omittedSentences;
+        }
+
+        public List<ExcelField> getFields() {
+            return fields;
+        }
+
+        public String getContent() {
+            return content;
+        }
+
+        public int getIncludedSentences() {
+            return includedSentences;
+        }
+
+        public int getOmittedSentences() {
+            return omittedSentences;
+        }
+
+        public int getEstimatedTokens() {
+            return TokenBucketRateLimiter.estimateTokens(content);
+        }
+    }
+
+    private final int tokenBudget;
+
+    /**
+     * @param tokenBudget 每个提示的token上限，不含调用方附加的系统提示和规则提取说明
+     */
+    public RulePromptBuilder(int tokenBudget) {
+        if (tokenBudget <= 0) {
+            throw new IllegalArgumentException("提示token预算必须为正数: " + tokenBudget);
+        }
+        this.tokenBudget = tokenBudget;
+    }
+
+    /**
+     * 构建分类的规则提取提示
+     * @param category 分类名称
+     * @param fields 分类中的字段
+     * @param relationsByField 字段ID到相关句子关联的映射
+     * @param scopeMap 文件名到报送范围的映射
+     * @return 一个或多个子请求的提示
+     */
+    public List<RulePrompt> build(String category, List<ExcelField> fields,
+                                  Map<Long, List<FieldSentenceRelation>> relationsByField,
+                                  Map<String, String> scopeMap) {
+        List<RulePrompt> prompts = new ArrayList<>();
+        for (List<ExcelField> group : splitFields(category, fields, relationsByField)) {
+            prompts.add(buildPrompt(category, group, relationsByField, scopeMap));
+        }
+        return prompts;
+    }
+
+    /**
+     * 按字段顺序贪心分组，使每组的字段说明和全部相关句子尽量放入预算
+     */
+    private List<List<ExcelField>> splitFields(String category, List<ExcelField> fields,
+                                               Map<Long, List<FieldSentenceRelation>> relationsByField) {
+        List<List<ExcelField>> groups = new ArrayList<>();
+        List<ExcelField> current = new ArrayList<>();
+        Set<Long> currentSentences = new LinkedHashSet<>();
+        int currentTokens = estimate(content(category, header(category), "", ""));
+
+        for (ExcelField field : fields) {
+            Set<Long> newSentences = new LinkedHashSet<>();
+            int fieldTokens = fieldCost(field, relationsByField, currentSentences, newSentences);
+
+            if (!current.isEmpty() && fieldTokens > tokenBudget - currentTokens) {
+                groups.add(current);
+                current = new ArrayList<>();
+                currentSentences = new LinkedHashSet<>();
+                currentTokens = estimate(content(category, header(category), "", ""));
+                // 新组中该字段的句子都需要重新计入
+                newSentences.clear();
+                fieldTokens = fieldCost(field, relationsByField, currentSentences, newSentences);
+            }
+            current.add(field);
+            currentSentences.addAll(newSentences);
+            currentTokens += fieldTokens;
+        }
+        if (!current.isEmpty()) {
+            groups.add(current);
+        }
+        return groups;
+    }
+
+    /**
+     * 字段说明及其尚未计入本组的句子的token数，新句子ID写入 newSentences
+     */
+    private int fieldCost(ExcelField field, Map<Long, List<FieldSentenceRelation>> relationsByField,
+                          Set<Long> groupSentences, Set<Long> newSentences) {
+        int tokens = estimate(fieldDetail(field));
+        for (FieldSentenceRelation relation : relationsOf(field, relationsByField)) {
+            if (!groupSentences.contains(relation.getSentenceId()) && newSentences.add(relation.getSentenceId())) {
+                tokens += estimate(sentenceLine(relation));
+            }
+        }
+        return tokens;
+    }
+
+    private RulePrompt buildPrompt(String category, List<ExcelField> fields,
+                                   Map<Long, List<FieldSentenceRelation>> relationsByField,
+                                   Map<String, String> scopeMap) {
+        StringBuilder fieldDetails = new StringBuilder(header(category));
+        for (ExcelField field : fields) {
+            fieldDetails.append(fieldDetail(field));
+        }
+
+        // 同一句子可能关联多个字段，取最高得分
+        Map<Long, FieldSentenceRelation> bestRelations = new LinkedHashMap<>();
+        for (ExcelField field : fields) {
+            for (FieldSentenceRelation relation : relationsOf(field, relationsByField)) {
+                FieldSentenceRelation existing = bestRelations.get(relation.getSentenceId());
+                if (existing == null || score(relation) > score(existing)) {
+                    bestRelations.put(relation.getSentenceId(), relation);
+                }
+            }
+        }
+        List<FieldSentenceRelation> ranked = new ArrayList<>(bestRelations.values());
+        ranked.sort(Comparator.comparingDouble(RulePromptBuilder::score).reversed());
+
+        // 按得分从高到低装入预算，装不下的句子跳过；
+        // 某个文档的句子首次入选时，预算允许的话一并带上该文档的报送范围
+        int usedTokens = estimate(content(category, fieldDetails, "", ""));
+        List<FieldSentenceRelation> selected = new ArrayList<>();
+        Map<String, String> selectedScopes = new LinkedHashMap<>();
+        for (FieldSentenceRelation relation : ranked) {
+            int tokens = estimate(sentenceLine(relation));
+            if (tokens > tokenBudget - usedTokens) {
+                continue;
+            }
+            selected.add(relation);
+            usedTokens += tokens;
+
+            String sourceFile = relation.getSourceFile();
+            String scope = scopeMap.get(sourceFile);
+            if (scope != null && !selectedScopes.containsKey(sourceFile)) {
+                String scopeText = "### " + sourceFile + "\n" + scope + "\n\n";
+                int scopeTokens = estimate(scopeText);
+                if (scopeTokens <= tokenBudget - usedTokens) {
+                    selectedScopes.put(sourceFile, scopeText);
+                    usedTokens += scopeTokens;
+                }
+            }
+        }
+
+        // 入选句子按来源文件和原文顺序排列，保持上下文结构
+        selected.sort(Comparator.comparing((FieldSentenceRelation r) -> String.valueOf(r.getSourceFile()))
+                .thenComparing(FieldSentenceRelation::getSentenceId));
+        StringBuilder sentencesText = new StringBuilder();
+        for (FieldSentenceRelation relation : selected) {
+            sentencesText.append(sentenceLine(relation));
+        }
+        StringBuilder scopeInfo = new StringBuilder();
+        selectedScopes.values().forEach(scopeInfo::append);
+
+        return new RulePrompt(Collections.unmodifiableList(fields),
+                content(category, fieldDetails, sentencesText, scopeInfo),
+                selected.size(), ranked.size() - selected.size());
+    }
+
+    private static List<FieldSentenceRelation> relationsOf(ExcelField field,
+                                                           Map<Long, List<FieldSentenceRelation>> relationsByField) {
+        List<FieldSentenceRelation> relations = relationsByField.get(field.getId());
+        return relations != null ? relations : Collections.emptyList();
+    }
+
+    /**
+     * 提示的完整格式，空的各段用于估算固定部分的token数
+     */
+    private static String content(String category, CharSequence fieldDetails, CharSequence sentencesText,
+                                  CharSequence scopeInfo) {
+        return String.format("分类: %s\n\n字段列表:\n%s\n相关文本:\n%s", category, fieldDetails, sentencesText)
+                + "\n\n## 相关文档的报送范围信息\n\n" + scopeInfo;
+    }
+
+    private static String header(String category) {
+        return "分类 '" + category + "' 包含以下字段：\n";
+    }
+
+    private static String fieldDetail(ExcelField field) {
+        return String.format("- 字段名: %s\n  表名: %s\n  描述: %s\n  ---\n",
+                field.getFieldName(),
+                field.getTableName() != null ? field.getTableName() : "未指定",
+                field.getDescription() != null ? field.getDescription() : "无描述");
+    }
+
+    private static String sentenceLine(FieldSentenceRelation relation) {
+        return relation.getSentenceContent() + "\n";
+    }
+
+    private static double score(FieldSentenceRelation relation) {
+        return relation.getRelevanceScore() != null ? relation.getRelevanceScore() : 0.0;
+    }
+
+    private static int estimate(String text) {
+        return TokenBucketRateLimiter.estimateTokens(text);
+    }
+}
@@ -0,0 +1,255 @@
+package com.example.multidoc.util;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.function.Consumer;
+
+/**
+ * 流式句子拆分器
+ * 逐段输入一个文档的段落，按句末标点拆分句子，过短的句子与后续句子合并，
+ * 超过最大长度的句子优先在逗号、分号或空白处切分，拆出的句子立即交给下游处理。位置为句子在本文档文本（段落之间以空行分隔）中的偏移，
+ * 上下文只保留句子前后窗口内的文本，内存占用与文档大小无关。
+ * 每个字符只扫描一次，句子偏移在扫描过程中直接得到，不需要回查原文，总耗时与文本长度成线性关系。
+ */
+public class SentenceSplitter {
+
+    // 段落分隔符
+    private static final String PARAGRAPH_SEPARATOR = "\n\n";
+
+    private final int minSentenceLength;
+    private final int maxSentenceLength;
+    private final int contextWindowSize;
+    private final Consumer<WordProcessor.WordSentenceInfo> sink;
+
+    private int nextSentenceIndex;
+
+    // 文档中已输入文本的长度
+    private int offset;
+
+    // 上下文窗口：保存文档中从 windowStart 到 offset 的文本
+    private final StringBuilder window = new StringBuilder();
+    private int windowStart;
+
+    // 正在累积的过短句子
+    private final StringBuilder current = new StringBuilder();
+    private int currentStart;
+    private int currentEnd;
+
+    // 已拆出、等待后文上下文的句子
+    private final Deque<WordProcessor.WordSentenceInfo> pending = new ArrayDeque<>();
+
+    /**
+     * @param minSentenceLength 句子最小长度，短于该长度的句子与下一句合并
+     * @param maxSentenceLength 句子最大长度，合并或拆分后的句子都不超过该长度
+     * @param contextWindowSize 句子前后保留的上下文字符数
+     * @param firstSentenceIndex 第一个句子的序号
+     * @param sink 接收拆出的句子
+     */
+    public SentenceSplitter(int minSentenceLength, int maxSentenceLength, int contextWindowSize,
+                            int firstSentenceIndex, Consumer<WordProcessor.WordSentenceInfo> sink) {
+        if (maxSentenceLength <= 0) {
+            throw new IllegalArgumentException("句子最大长度必须大于0: " + maxSentenceLength);
+        }
+        this.minSentenceLength = minSentenceLength;
+        this.maxSentenceLength = maxSentenceLength;
+        this.contextWindowSize = contextWindowSize;
+        this.nextSentenceIndex = firstSentenceIndex;
+        this.sink = sink;
+    }
+
+    /**
+     * 输入一个段落，空段落被忽略
+     */
+    public void addParagraph(String paragraph) {
+        if (paragraph == null) {
+            return;
+        }
+        String text = paragraph.trim();
+        if (text.isEmpty()) {
+            return;
+        }
+
+        int paragraphStart = offset;
+        window.append(text).append(PARAGRAPH_SEPARATOR);
+        offset += text.length() + PARAGRAPH_SEPARATOR.length();
+
+        // 句末标点之后、下一个非空白字符之前为句子边界
+        int length = text.length();
+        int pieceStart = 0;
+        int i = 0;
+        while (i < length) {
+            if (!isSentenceEnd(text.charAt(i))) {
+                i++;
+                continue;
+            }
+            int next = i + 1;
+            while (next < length && Character.isWhitespace(text.charAt(next))) {
+                next++;
+            }
+            if (next < length) {
+                addPiece(text, pieceStart, i + 1, paragraphStart);
+                pieceStart = next;
+            }
+            i = next;
+        }
+        addPiece(text, pieceStart, length, paragraphStart);
+
+        emitReady(false);
+    }
+
+    /**
+     * 文档输入结束，输出剩余的句子
+     */
+    public void finish() {
+        if (current.length() > 0) {
+            completeCurrent();
+        }
+        emitReady(true);
+        window.setLength(0);
+        windowStart = offset;
+    }
+
+    /**
+     * 下一个句子的序号，用于多个文档连续编号
+     */
+    public int getNextSentenceIndex() {
+        return nextSentenceIndex;
+    }
+
+    private static boolean isSentenceEnd(char c) {
+        return c == '.' || c == '!' || c == '?' || c == '。' || c == '！' || c == '？';
+    }
+
+    private static boolean isSoftBreak(char c) {
+        return c == ',' || c == ';' || c == '，' || c == '；' || c == '、' || Character.isWhitespace(c);
+    }
+
+    private void addPiece(String text, int start, int end, int paragraphStart) {
+        // 去掉首尾空白
+        while (start < end && Character.isWhitespace(text.charAt(start))) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(text.charAt(end - 1))) {
+            end--;
+        }
+        if (start == end) {
+            return;
+        }
+
+        // 超长的句子切分为不超过最大长度的片段
+        while (end - start > maxSentenceLength) {
+            int cut = findCut(text, start, start + maxSentenceLength);
+            int pieceEnd = cut;
+            while (pieceEnd > start && Character.isWhitespace(text.charAt(pieceEnd - 1))) {
+                pieceEnd--;
+            }
+            appendPiece(text, start, pieceEnd, paragraphStart);
+            start = cut;
+            while (start < end && Character.isWhitespace(text.charAt(start))) {
+                start++;
+            }
+        }
+        if (start < end) {
+            appendPiece(text, start, end, paragraphStart);
+        }
+    }
+
+    /**
+     * 在 limit 之前找切分位置，优先取后半段中最后一个逗号、分号或空白之后的位置，找不到时在 limit 处截断
+     */
+    private int findCut(String text, int start, int limit) {
+        for (int i = limit - 1; i > start + maxSentenceLength / 2; i--) {
+            if (isSoftBreak(text.charAt(i))) {
+                return i + 1;
+            }
+        }
+        // 不在代理对中间截断
+        if (limit - 1 > start && Character.isHighSurrogate(text.charAt(limit - 1))) {
+            return limit - 1;
+        }
+        return limit;
+    }
+
+    private void appendPiece(String text, int start, int end, int paragraphStart) {
+        // 合并后会超过最大长度时，先输出当前句子
+        if (current.length() > 0 && current.length() + 1 + (end - start) > maxSentenceLength) {
+            completeCurrent();
+        }
+
+        // 当前句子太短，与这一句合并
+        if (current.length() < minSentenceLength) {
+            if (current.length() > 0) {
+                current.append(" ");
+            } else {
+                currentStart = paragraphStart + start;
+            }
+            current.append(text, start, end);
+            currentEnd = paragraphStart + end;
+            return;
+        }
+
+        if (current.length() > 0) {
+            completeCurrent();
+        }
+        current.append(text, start, end);
+        currentStart = paragraphStart + start;
+        currentEnd = paragraphStart + end;
+    }
+
+    private void completeCurrent() {
+        WordProcessor.WordSentenceInfo sentence = new WordProcessor.WordSentenceInfo();
+        sentence.setSentenceIndex(nextSentenceIndex++);
+        sentence.setContent(current.toString());
+        sentence.setStartPosition(currentStart);
+        sentence.setEndPosition(currentEnd - 1);
+        pending.addLast(sentence);
+        current.setLength(0);
+    }
+
+    /**
+     * 输出后文上下文已足够的句子，并丢弃不再需要的窗口文本
+     */
+    private void emitReady(boolean finished) {
+        while (!pending.isEmpty()) {
+            WordProcessor.WordSentenceInfo sentence = pending.peekFirst();
+            int contextEnd = sentence.getEndPosition() + 1 + contextWindowSize;
+            if (!finished && contextEnd > offset) {
+                break;
+            }
+            pending.removeFirst();
+            sentence.setContext(extractContext(sentence, Math.min(contextEnd, offset), finished));
+            sink.accept(sentence);
+        }
+
+        int keepFrom;
+        if (!pending.isEmpty()) {
+            keepFrom = pending.peekFirst().getStartPosition();
+        } else if (current.length() > 0) {
+            keepFrom = currentStart;
+        } else {
+            keepFrom = offset;
+        }
+        // 不再需要的文本超过窗口一半时才整体前移，避免每段都移动窗口内容
+        keepFrom = Math.max(windowStart, keepFrom - contextWindowSize);
+        int unused = keepFrom - windowStart;
+        if (unused > 0 && unused >= window.length() / 2) {
+            window.delete(0, unused);
+            windowStart = keepFrom;
+        }
+    }
+
+    private String extractContext(WordProcessor.WordSentenceInfo sentence, int contextEnd, boolean finished) {
+        int contextStart = Math.max(0, sentence.getStartPosition() - contextWindowSize);
+
+        // 直接从窗口中截取，如果上下文被截断，添加标记
+        StringBuilder context = new StringBuilder(contextEnd - contextStart + 6);
+        if (contextStart > 0) {
+            context.append("...");
+        }
+        context.append(window, contextStart - windowStart, contextEnd - windowStart);
+        if (!finished || contextEnd < offset) {
+            context.append("...");
+        }
+        return context.toString();
+    }
+}
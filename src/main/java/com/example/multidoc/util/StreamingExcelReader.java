@@ -0,0 +1,388 @@
+package com.example.multidoc.util;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.util.CellAddress;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.Comments;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Predicate;
+
+/**
+ * 基于SAX的Excel要素流式读取
+ * 逐个解析工作表XML，不构建整个工作簿的对象模型，内存占用只与共享字符串、批注和命中的要素数量有关。
+ * 合并单元格信息位于工作表XML的末尾，解析到时回填到本表已命中的要素上。
+ * 各工作表的解析互不依赖，可以并行进行。
+ */
+class StreamingExcelReader {
+
+    private final Predicate<String> textFilter;
+
+    /**
+     * @param textFilter 单元格文本和批注的过滤条件，只保留满足条件的要素和批注
+     */
+    StreamingExcelReader(Predicate<String> textFilter) {
+        this.textFilter = textFilter;
+    }
+
+    /**
+     * 按工作表顺序读取所有要素
+     */
+    List<ExcelProcessor.ElementInfo> read(File file) throws IOException {
+        OpenedWorkbook workbook = open(file);
+        try {
+            List<ExcelProcessor.ElementInfo> elements = new ArrayList<>();
+            for (SheetSource sheet : workbook.sheets) {
+                elements.addAll(parseSheet(workbook, sheet));
+            }
+            return elements;
+        } finally {
+            workbook.close();
+        }
+    }
+
+    /**
+     * 在执行器中并行解析各工作表，结果按工作表顺序合并
+     * 读取失败时以 UncheckedIOException 异常结束
+     */
+    CompletableFuture<List<ExcelProcessor.ElementInfo>> readAsync(File file, Executor executor) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return open(file);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, executor).thenCompose(workbook -> {
+            List<CompletableFuture<List<ExcelProcessor.ElementInfo>>> sheets = new ArrayList<>();
+            for (SheetSource sheet : workbook.sheets) {
+                sheets.add(CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return parseSheet(workbook, sheet);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }, executor));
+            }
+            return CompletableFuture.allOf(sheets.toArray(new CompletableFuture[0]))
+                    .thenApply(ignored -> {
+                        List<ExcelProcessor.ElementInfo> elements = new ArrayList<>();
+                        for (CompletableFuture<List<ExcelProcessor.ElementInfo>> sheet : sheets) {
+                            elements.addAll(sheet.join());
+                        }
+                        return elements;
+                    })
+                    .whenComplete((elements, error) -> workbook.close());
+        });
+    }
+
+    /**
+     * 打开工作簿，读取共享字符串、样式和各工作表的批注
+     */
+    private OpenedWorkbook open(File file) throws IOException {
+        if (!file.isFile()) {
+            throw new FileNotFoundException(file.getPath());
+        }
+        OPCPackage pkg;
+        try {
+            pkg = OPCPackage.open(file, PackageAccess.READ);
+        } catch (OpenXML4JException e) {
+            throw new IOException("打开Excel文件失败: " + e.getMessage(), e);
+        }
+        try {
+            XSSFReader reader = new XSSFReader(pkg);
+            List<SheetSource> sheets = new ArrayList<>();
+            XSSFReader.SheetIterator iterator = (XSSFReader.SheetIterator) reader.getSheetsData();
+            while (iterator.hasNext()) {
+                // 这里只定位工作表，数据在解析时再按需读取
+                iterator.next().close();
+                sheets.add(new SheetSource(iterator.getSheetName(), iterator.getSheetPart(), iterator.getSheetComments()));
+            }
+            return new OpenedWorkbook(pkg, new ReadOnlySharedStringsTable(pkg, false), reader.getStylesTable(), sheets);
+        } catch (OpenXML4JException | SAXException e) {
+            pkg.revert();
+            throw new IOException("流式读取Excel失败: " + e.getMessage(), e);
+        } catch (IOException | RuntimeException e) {
+            pkg.revert();
+            throw e;
+        }
+    }
+
+    private List<ExcelProcessor.ElementInfo> parseSheet(OpenedWorkbook workbook, SheetSource sheet) throws IOException {
+        try (InputStream sheetData = sheet.part.getInputStream()) {
+            SheetHandler handler = new SheetHandler(sheet.name, workbook.strings, workbook.styles,
+                    sheet.comments, workbook.fontFlagsByStyle);
+            XMLReader parser = XMLHelper.newXMLReader();
+            parser.setContentHandler(handler);
+            parser.parse(new InputSource(sheetData));
+            return handler.elements;
+        } catch (SAXException | ParserConfigurationException e) {
+            throw new IOException("流式读取工作表失败: " + sheet.name + ", " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 已打开的工作簿，共享字符串和样式在各工作表间只读共享
+     */
+    private static class OpenedWorkbook {
+
+        private final OPCPackage pkg;
+        private final ReadOnlySharedStringsTable strings;
+        private final StylesTable styles;
+        private final List<SheetSource> sheets;
+        private final Map<Integer, ExcelProcessor.FontFlags> fontFlagsByStyle = new ConcurrentHashMap<>();
+
+        OpenedWorkbook(OPCPackage pkg, ReadOnlySharedStringsTable strings, StylesTable styles, List<SheetSource> sheets) {
+            this.pkg = pkg;
+            this.strings = strings;
+            this.styles = styles;
+            this.sheets = sheets;
+        }
+
+        void close() {
+            // 只读打开的包用 revert 释放，不写回文件
+            pkg.revert();
+        }
+    }
+
+    private static class SheetSource {
+
+        private final String name;
+        private final PackagePart part;
+        private final Comments comments;
+
+        SheetSource(String name, PackagePart part, Comments comments) {
+            this.name = name;
+            this.part = part;
+            this.comments = comments;
+        }
+    }
+
+    /**
+     * 单个工作表的SAX处理器
+     */
+    private class SheetHandler extends DefaultHandler {
+
+        private final String sheetName;
+        private final ReadOnlySharedStringsTable strings;
+        private final StylesTable styles;
+        private final Comments comments;
+        private final Map<Integer, ExcelProcessor.FontFlags> fontFlagsByStyle;
+
+        private final List<ExcelProcessor.ElementInfo> elements = new ArrayList<>();
+        // 命中要素按 "行,列" 索引，用于回填合并单元格
+        private final Map<String, ExcelProcessor.ElementInfo> elementsByCell = new HashMap<>();
+
+        // 未写单元格引用时按行内顺序推算位置
+        private int currentRow = -1;
+        private int nextColumn;
+
+        // 当前单元格
+        private int rowIndex;
+        private int columnIndex;
+        private String cellType;
+        private int styleIndex;
+        private boolean hasFormula;
+        private final StringBuilder value = new StringBuilder();
+        private final StringBuilder formula = new StringBuilder();
+
+        private boolean inValue;
+        private boolean inFormula;
+        private boolean inInlineString;
+        private boolean inText;
+
+        SheetHandler(String sheetName, ReadOnlySharedStringsTable strings, StylesTable styles,
+                     Comments comments, Map<Integer, ExcelProcessor.FontFlags> fontFlagsByStyle) {
+            this.sheetName = sheetName;
+            this.strings = strings;
+            this.styles = styles;
+            this.comments = comments;
+            this.fontFlagsByStyle = fontFlagsByStyle;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            switch (localName) {
+                case "row":
+                    String rowRef = attributes.getValue("r");
+                    currentRow = rowRef != null ? Integer.parseInt(rowRef) - 1 : currentRow + 1;
+                    nextColumn = 0;
+                    break;
+                case "c":
+                    startCell(attributes);
+                    break;
+                case "v":
+                    inValue = true;
+                    break;
+                case "f":
+                    inFormula = true;
+                    hasFormula = true;
+                    break;
+                case "is":
+                    inInlineString = true;
+                    break;
+                case "t":
+                    inText = inInlineString;
+                    break;
+                case "mergeCell":
+                    applyMergedRegion(CellRangeAddress.valueOf(attributes.getValue("ref")));
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            switch (localName) {
+                case "c":
+                    endCell();
+                    break;
+                case "v":
+                    inValue = false;
+                    break;
+                case "f":
+                    inFormula = false;
+                    break;
+                case "is":
+                    inInlineString = false;
+                    break;
+                case "t":
+                    inText = false;
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (inValue || inText) {
+                value.append(ch, start, length);
+            } else if (inFormula) {
+                formula.append(ch, start, length);
+            }
+        }
+
+        private void startCell(Attributes attributes) {
+            String ref = attributes.getValue("r");
+            if (ref != null) {
+                CellReference reference = new CellReference(ref);
+                rowIndex = reference.getRow();
+                columnIndex = reference.getCol();
+            } else {
+                rowIndex = currentRow;
+                columnIndex = nextColumn;
+            }
+            nextColumn = columnIndex + 1;
+
+            cellType = attributes.getValue("t");
+            String style = attributes.getValue("s");
+            styleIndex = style != null ? Integer.parseInt(style) : 0;
+            hasFormula = false;
+            value.setLength(0);
+            formula.setLength(0);
+        }
+
+        private void endCell() {
+            String text = cellValue();
+            if (text.isEmpty() || !textFilter.test(text)) {
+                return;
+            }
+
+            ExcelProcessor.ElementInfo element = new ExcelProcessor.ElementInfo();
+            element.setSheetName(sheetName);
+            element.setTableName(sheetName);
+            element.setRowIndex(rowIndex);
+            element.setColumnIndex(columnIndex);
+            element.setValue(text);
+            fontFlags().applyTo(element);
+
+            // 共享公式只有首个单元格带公式文本
+            if (hasFormula && formula.length() > 0) {
+                element.setFormula(formula.toString());
+            }
+
+            if (comments != null) {
+                XSSFComment comment = comments.findCellComment(new CellAddress(rowIndex, columnIndex));
+                if (comment != null && comment.getString() != null) {
+                    String commentText = comment.getString().getString();
+                    if (textFilter.test(commentText)) {
+                        element.setComment(commentText);
+                    }
+                }
+            }
+
+            elements.add(element);
+            elementsByCell.put(rowIndex + "," + columnIndex, element);
+        }
+
+        /**
+         * 与 ExcelProcessor 按对象模型读取时的取值规则一致；
+         * 数值和日期不含中文，不会通过过滤，这里不再按日期格式转换
+         */
+        private String cellValue() {
+            String raw = value.toString();
+            if (cellType == null || "n".equals(cellType)) {
+                return raw.isEmpty() ? "" : String.valueOf(Double.parseDouble(raw));
+            }
+            switch (cellType) {
+                case "s":
+                    if (raw.isEmpty()) {
+                        return "";
+                    }
+                    return strings.getItemAt(Integer.parseInt(raw.trim())).getString().replace("|", "\\|");
+                case "inlineStr":
+                    return raw.replace("|", "\\|");
+                case "str":
+                    return raw;
+                case "b":
+                    return raw.isEmpty() ? "" : String.valueOf("1".equals(raw.trim()));
+                case "e":
+                    return hasFormula ? formula.toString() : "";
+                default:
+                    return "";
+            }
+        }
+
+        private ExcelProcessor.FontFlags fontFlags() {
+            return fontFlagsByStyle.computeIfAbsent(styleIndex, index -> styles != null && index < styles.getNumCellStyles()
+                    ? new ExcelProcessor.FontFlags(styles.getStyleAt(index).getFont())
+                    : ExcelProcessor.FontFlags.DEFAULT);
+        }
+
+        private void applyMergedRegion(CellRangeAddress region) {
+            ExcelProcessor.ElementInfo element = elementsByCell.get(region.getFirstRow() + "," + region.getFirstColumn());
+            if (element != null) {
+                element.setMerged(true);
+                element.setMergedRowSpan(region.getLastRow() - region.getFirstRow() + 1);
+                element.setMergedColSpan(region.getLastColumn() - region.getFirstColumn() + 1);
+            }
+        }
+    }
+}
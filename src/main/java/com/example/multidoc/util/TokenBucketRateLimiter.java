@@ -0,0 +1,98 @@
+package com.example.multidoc.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于令牌桶的大模型调用限流器
+ * 同时维护"每分钟请求数"和"每分钟Token数"两个桶，两个桶都有余量时才放行请求，
+ * 用于替代固定的批次间隔等待，让并发请求在服务商的频率限制内尽可能快地发出。
+ */
+public class TokenBucketRateLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenBucketRateLimiter.class);
+
+    private static final double NANOS_PER_MINUTE = TimeUnit.MINUTES.toNanos(1);
+
+    private final double requestCapacity;
+    private final double tokenCapacity;
+    private final double requestsPerNano;
+    private final double tokensPerNano;
+
+    private double availableRequests;
+    private double availableTokens;
+    private long lastRefillNanos;
+
+    /**
+     * @param requestsPerMinute 每分钟允许的请求数
+     * @param tokensPerMinute 每分钟允许的Token数
+     */
+    public TokenBucketRateLimiter(int requestsPerMinute, int tokensPerMinute) {
+        if (requestsPerMinute <= 0 || tokensPerMinute <= 0) {
+            throw new IllegalArgumentException("限流配置必须为正数: requestsPerMinute=" + requestsPerMinute
+                    + ", tokensPerMinute=" + tokensPerMinute);
+        }
+        this.requestCapacity = requestsPerMinute;
+        this.tokenCapacity = tokensPerMinute;
+        this.requestsPerNano = requestsPerMinute / NANOS_PER_MINUTE;
+        this.tokensPerNano = tokensPerMinute / NANOS_PER_MINUTE;
+        this.availableRequests = requestCapacity;
+        this.availableTokens = tokenCapacity;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * 获取一次请求许可，必要时阻塞等待直到两个桶都有足够余量
+     * @param estimatedTokens 本次请求预估消耗的Token数（超过桶容量时按桶容量计）
+     */
+    public void acquire(int estimatedTokens) throws InterruptedException {
+        double tokens = Math.min(Math.max(estimatedTokens, 0), tokenCapacity);
+        while (true) {
+            long waitNanos;
+            synchronized (this) {
+                refill();
+                if (availableRequests >= 1 && availableTokens >= tokens) {
+                    availableRequests -= 1;
+                    availableTokens -= tokens;
+                    return;
+                }
+                double requestWait = availableRequests >= 1 ? 0 : (1 - availableRequests) / requestsPerNano;
+                double tokenWait = availableTokens >= tokens ? 0 : (tokens - availableTokens) / tokensPerNano;
+                waitNanos = (long) Math.ceil(Math.max(requestWait, tokenWait));
+            }
+            logger.debug("触发限流，等待 {} 毫秒后重试获取许可", TimeUnit.NANOSECONDS.toMillis(waitNanos));
+            TimeUnit.NANOSECONDS.sleep(Math.max(waitNanos, TimeUnit.MILLISECONDS.toNanos(1)));
+        }
+    }
+
+    /**
+     * 估算文本消耗的Token数
+     * 中文按每个字符约一个Token，其余字符按约四个字符一个Token粗略估算
+     */
+    public static int estimateTokens(String text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        int cjkChars = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (Character.UnicodeScript.of(text.charAt(i)) == Character.UnicodeScript.HAN) {
+                cjkChars++;
+            }
+        }
+        int otherChars = text.length() - cjkChars;
+        return cjkChars + (otherChars + 3) / 4;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        long elapsed = now - lastRefillNanos;
+        if (elapsed <= 0) {
+            return;
+        }
+        availableRequests = Math.min(requestCapacity, availableRequests + elapsed * requestsPerNano);
+        availableTokens = Math.min(tokenCapacity, availableTokens + elapsed * tokensPerNano);
+        lastRefillNanos = now;
+    }
+}
@@ -1,11 +1,5 @@
 package com.example.multidoc.util;
 
-import dev.langchain4j.data.document.Document;
-import dev.langchain4j.data.document.DocumentParser;
-import dev.langchain4j.data.document.Metadata;
-import dev.langchain4j.data.segment.TextSegment;
-import dev.langchain4j.data.document.splitter.DocumentSplitters;
-import dev.langchain4j.data.document.parser.apache.poi.ApachePoiDocumentParser;
 import lombok.Data;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
@@ -24,7 +18,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 import java.io.FileInputStream;
-import java.util.regex.Pattern;
+import java.util.function.Consumer;
 
 @Component
 public class WordProcessor {
@@ -34,31 +28,17 @@ public class WordProcessor {
     @Value("${app.upload.word-dir}")
     private String uploadDir;
 
-    @Value("${app.chunk.max-size}")
-    private int maxChunkSize;
-
-    @Value("${app.chunk.overlap-size}")
-    private int overlapSize;
-
     private static final String[] ALLOWED_EXTENSIONS = {".docx", ".doc"};
-    private final DocumentParser documentParser;
-    
-    // 定义句子结束标记的正则表达式
-    private static final Pattern SENTENCE_END_PATTERN = Pattern.compile("(?<=[.!?。！？])\\s*(?=\\S)");
-    
-    // 定义段落分隔符
-    private static final String PARAGRAPH_SEPARATOR = "\n\n";
     
     // 定义最小句子长度
     private static final int MIN_SENTENCE_LENGTH = 50;
     
+    // 定义最大句子长度，超长的句子被切分，保证不超出 word_sentences.content（TEXT，64KB）的容量
+    private static final int MAX_SENTENCE_LENGTH = 2000;
+    
     // 定义上下文窗口大小
     private static final int CONTEXT_WINDOW_SIZE = 200;
 
-    public WordProcessor() {
-        this.documentParser = new ApachePoiDocumentParser();
-    }
-
     public String processWordFile(MultipartFile file) throws IOException {
         if (file.isEmpty()) {
             throw new IllegalArgumentException("File is empty");
@@ -98,139 +78,92 @@ public class WordProcessor {
     }
 
     /**
-     * 处理Word文档并按句子分割，保留上下文信息
-     * @param file Word文档文件
-     * @return 句子列表
+     * 读取Word文档的全部非空段落，读取失败时记录在结果中而不抛出
+     * @param filePath 文档路径
      */
-    public List<WordSentenceInfo> processSentences(File file) {
-        List<WordSentenceInfo> sentences = new ArrayList<>();
+    public ParsedDocument parseDocument(String filePath) {
+        File file = new File(filePath);
+        if (!file.exists()) {
+            return new ParsedDocument(filePath, file.getName(), null, new IOException("文件不存在: " + filePath));
+        }
         try (FileInputStream fis = new FileInputStream(file);
              XWPFDocument document = new XWPFDocument(fis)) {
-            
-            int sentenceIndex = 0;
-            int totalPosition = 0;
-            StringBuilder fullText = new StringBuilder();
-            
-            // 首先构建完整文本，保留段落结构
+            List<String> paragraphs = new ArrayList<>();
             for (XWPFParagraph paragraph : document.getParagraphs()) {
                 String text = paragraph.getText().trim();
-                if (text.isEmpty()) continue;
-                
-                fullText.append(text).append(PARAGRAPH_SEPARATOR);
-            }
-            
-            // 使用 langchain4j 的文档分割器进行智能分割
-            Document doc = Document.from(fullText.toString(), Metadata.from("source", file.getPath()));
-            List<TextSegment> segments = DocumentSplitters.recursive(maxChunkSize, overlapSize).split(doc);
-            
-            // 处理每个分割后的段落
-            for (TextSegment segment : segments) {
-                String segmentText = segment.text();
-                int segmentStart = fullText.indexOf(segmentText);
-                
-                // 按句子分割段落
-                String[] sentenceTexts = SENTENCE_END_PATTERN.split(segmentText);
-                int currentPosition = 0;
-                StringBuilder currentSentence = new StringBuilder();
-                
-                for (String sentenceText : sentenceTexts) {
-                    if (sentenceText.trim().isEmpty()) continue;
-                    
-                    // 如果当前句子太短，尝试与下一个句子合并
-                    if (currentSentence.length() < MIN_SENTENCE_LENGTH) {
-                        if (currentSentence.length() > 0) {
-                            currentSentence.append(" ");
-                        }
-                        currentSentence.append(sentenceText.trim());
-                        continue;
-                    }
-                    
-                    // 处理当前累积的句子
-                    if (currentSentence.length() > 0) {
-                        String finalSentence = currentSentence.toString();
-                        int sentenceStart = segmentText.indexOf(finalSentence, currentPosition);
-                        int startPosition = segmentStart + sentenceStart;
-                        int length = finalSentence.length();
-                        
-                        WordSentenceInfo sentence = new WordSentenceInfo();
-                        sentence.setSentenceIndex(sentenceIndex++);
-                        sentence.setContent(finalSentence);
-                        sentence.setStartPosition(startPosition);
-                        sentence.setEndPosition(startPosition + length - 1);
-                        
-                        // 添加上下文信息
-                        String context = extractContext(fullText.toString(), startPosition, length);
-                        sentence.setContext(context);
-                        
-                        sentences.add(sentence);
-                        
-                        // 更新当前位置到这个句子之后
-                        currentPosition = sentenceStart + length;
-                        currentSentence = new StringBuilder();
-                    }
-                    
-                    // 开始新的句子
-                    currentSentence.append(sentenceText.trim());
-                }
-                
-                // 处理最后一个累积的句子
-                if (currentSentence.length() > 0) {
-                    String finalSentence = currentSentence.toString();
-                    int sentenceStart = segmentText.indexOf(finalSentence, currentPosition);
-                    int startPosition = segmentStart + sentenceStart;
-                    int length = finalSentence.length();
-                    
-                    WordSentenceInfo sentence = new WordSentenceInfo();
-                    sentence.setSentenceIndex(sentenceIndex++);
-                    sentence.setContent(finalSentence);
-                    sentence.setStartPosition(startPosition);
-                    sentence.setEndPosition(startPosition + length - 1);
-                    
-                    // 添加上下文信息
-                    String context = extractContext(fullText.toString(), startPosition, length);
-                    sentence.setContext(context);
-                    
-                    sentences.add(sentence);
+                if (!text.isEmpty()) {
+                    paragraphs.add(text);
                 }
             }
-            
-            return sentences;
-            
-        } catch (IOException e) {
-            logger.error("处理Word文档失败: " + file.getPath(), e);
-            throw new RuntimeException("处理Word文档失败: " + e.getMessage(), e);
+            return new ParsedDocument(filePath, file.getName(), paragraphs, null);
+        } catch (Exception e) {
+            logger.error("解析Word文档失败: " + filePath, e);
+            return new ParsedDocument(filePath, file.getName(), null, e);
         }
     }
-    
+
     /**
-     * 提取句子的上下文信息
-     * @param fullText 完整文本
-     * @param startPosition 句子开始位置
-     * @param length 句子长度
-     * @return 上下文信息
+     * 对已解析的文档拆分句子，拆出的句子逐个交给 sink，不在内存中汇总
+     * @param firstSentenceIndex 第一个句子的序号
+     * @param sink 接收拆出的句子
+     * @return 下一个句子的序号
      */
-    private String extractContext(String fullText, int startPosition, int length) {
-        // 计算上下文范围，确保不会超出文本边界
-        int contextStart = Math.max(0, startPosition - CONTEXT_WINDOW_SIZE);
-        int contextEnd = Math.min(fullText.length(), startPosition + length + CONTEXT_WINDOW_SIZE);
-        
-        // 确保开始位置不会大于结束位置
-        if (contextStart >= contextEnd) {
-            contextStart = Math.max(0, contextEnd - length - CONTEXT_WINDOW_SIZE);
+    public int splitSentences(ParsedDocument document, int firstSentenceIndex, Consumer<WordSentenceInfo> sink) {
+        SentenceSplitter splitter = newSentenceSplitter(firstSentenceIndex, sink);
+        for (String paragraph : document.getParagraphs()) {
+            splitter.addParagraph(paragraph);
         }
-        
-        // 提取上下文
-        String context = fullText.substring(contextStart, contextEnd);
-        
-        // 如果上下文被截断，添加标记
-        if (contextStart > 0) {
-            context = "..." + context;
+        splitter.finish();
+        return splitter.getNextSentenceIndex();
+    }
+
+    /**
+     * 创建流式句子拆分器，每个文档使用一个拆分器，段落逐个输入
+     * @param firstSentenceIndex 第一个句子的序号，多个文档连续编号时传入上一个拆分器的下一个序号
+     * @param sink 接收拆出的句子
+     */
+    public SentenceSplitter newSentenceSplitter(int firstSentenceIndex, Consumer<WordSentenceInfo> sink) {
+        return new SentenceSplitter(MIN_SENTENCE_LENGTH, MAX_SENTENCE_LENGTH, CONTEXT_WINDOW_SIZE, firstSentenceIndex, sink);
+    }
+
+    /**
+     * 解析后的Word文档，只保留段落文本，可同时用于提取文档前缀和拆分句子
+     */
+    public static class ParsedDocument {
+        private final String filePath;
+        private final String fileName;
+        private final List<String> paragraphs;
+        private final Exception error;
+
+        public ParsedDocument(String filePath, String fileName, List<String> paragraphs, Exception error) {
+            this.filePath = filePath;
+            this.fileName = fileName;
+            this.paragraphs = paragraphs;
+            this.error = error;
         }
-        if (contextEnd < fullText.length()) {
-            context = context + "...";
+
+        public String getFilePath() {
+            return filePath;
+        }
+
+        public String getFileName() {
+            return fileName;
+        }
+
+        public List<String> getParagraphs() {
+            return paragraphs;
+        }
+
+        /**
+         * 解析失败的原因，解析成功时为null
+         */
+        public Exception getError() {
+            return error;
+        }
+
+        public boolean isParsed() {
+            return error == null;
         }
-        
-        return context;
     }
 
     @Data
@@ -0,0 +1,2 @@
+-- 大模型响应缓存按最近访问时间淘汰超出上限的条目
+CREATE INDEX idx_llm_response_cache_last_access_time ON llm_response_cache (last_access_time);
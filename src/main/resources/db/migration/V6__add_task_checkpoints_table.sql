@@ -0,0 +1,12 @@
+-- 创建任务断点表
+CREATE TABLE task_checkpoints (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    task_id VARCHAR(36) NOT NULL,
+    step VARCHAR(50) NOT NULL,
+    unit_key VARCHAR(255) NOT NULL,
+    payload LONGTEXT,
+    completed_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    UNIQUE KEY unique_checkpoint (task_id, step, unit_key),
+    -- 外键约束
+    CONSTRAINT fk_task_checkpoints_task FOREIGN KEY (task_id) REFERENCES analysis_tasks(id) ON DELETE CASCADE
+); 
\ No newline at end of file
@@ -0,0 +1,9 @@
+-- 创建大模型响应缓存表
+CREATE TABLE llm_response_cache (
+    cache_key VARCHAR(64) PRIMARY KEY,
+    model VARCHAR(100),
+    response LONGTEXT NOT NULL,
+    created_time TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    last_access_time TIMESTAMP NULL,
+    INDEX idx_llm_response_cache_created_time (created_time)
+); 
\ No newline at end of file
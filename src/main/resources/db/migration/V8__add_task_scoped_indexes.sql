@@ -0,0 +1,21 @@
+-- 为按任务、字段、句子访问的大表添加复合索引
+-- 索引列顺序为等值条件列在前、排序列在后，查询可直接按索引顺序读取，无需全表扫描和额外排序
+
+-- 句子：按任务加载、计数、删除，按任务和来源文件顺序读取
+CREATE INDEX idx_word_sentences_task_index ON word_sentences (task_id, sentence_index);
+CREATE INDEX idx_word_sentences_task_source ON word_sentences (task_id, source_file, sentence_index);
+
+-- 字段与句子关联：按字段（及任务的全部字段）读取相关句子，按句子反查字段
+CREATE INDEX idx_field_sentence_relation_field_score ON field_sentence_relation (field_id, relevance_score);
+CREATE INDEX idx_field_sentence_relation_sentence_score ON field_sentence_relation (sentence_id, relevance_score);
+
+-- 任务日志：按任务和时间顺序读取，按任务和级别筛选
+CREATE INDEX idx_task_logs_task_time ON task_logs (task_id, log_time);
+CREATE INDEX idx_task_logs_task_level_time ON task_logs (task_id, log_level, log_time);
+
+-- 字段规则：按任务读取、计数，按任务和分类删除，按任务和规则类型筛选
+CREATE INDEX idx_field_rules_task_category ON field_rules (task_id, category);
+CREATE INDEX idx_field_rules_task_type ON field_rules (task_id, rule_type);
+
+-- Excel字段：按任务和分类读取
+CREATE INDEX idx_excel_fields_task_category ON excel_fields (task_id, category);
@@ -0,0 +1,3 @@
+-- 任务日志按ID游标分页：按任务取某ID之后的日志、取最近的日志
+-- (task_id, log_time) 索引无法按ID顺序读取，需单独的 (task_id, id) 索引
+CREATE INDEX idx_task_logs_task_id ON task_logs (task_id, id);
@@ -26,7 +26,8 @@ CREATE TABLE excel_fields (
     field_type VARCHAR(50),
     description TEXT,
     category VARCHAR(100),
-    UNIQUE KEY unique_field (task_id, table_name, field_name)
+    UNIQUE KEY unique_field (task_id, table_name, field_name),
+    INDEX idx_excel_fields_task_category (task_id, category)
 );
 
 -- Word句子表
@@ -37,7 +38,9 @@ CREATE TABLE word_sentences (
     content TEXT NOT NULL,
     source_file VARCHAR(255),
     start_position INT NOT NULL,
-    end_position INT NOT NULL
+    end_position INT NOT NULL,
+    INDEX idx_word_sentences_task_index (task_id, sentence_index),
+    INDEX idx_word_sentences_task_source (task_id, source_file, sentence_index)
 );
 
 -- 字段与句子关联表
@@ -51,7 +54,9 @@ CREATE TABLE field_sentence_relation (
     sentence_content TEXT NOT NULL,
     source_file VARCHAR(255),
     relevance_score FLOAT DEFAULT 0.0,
-    created_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+    created_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    INDEX idx_field_sentence_relation_field_score (field_id, relevance_score),
+    INDEX idx_field_sentence_relation_sentence_score (sentence_id, relevance_score)
 );
 
 -- 字段规则表
@@ -64,7 +69,9 @@ CREATE TABLE field_rules (
     confidence FLOAT,
     category VARCHAR(255),
     is_cross_table BOOLEAN DEFAULT FALSE,
-    created_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+    created_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    INDEX idx_field_rules_task_category (task_id, category),
+    INDEX idx_field_rules_task_type (task_id, rule_type)
 );
 
 -- 分析结果表
@@ -85,7 +92,10 @@ CREATE TABLE task_logs (
     task_id VARCHAR(36) NOT NULL,
     log_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     log_level VARCHAR(50) NOT NULL,
-    message TEXT NOT NULL
+    message TEXT NOT NULL,
+    INDEX idx_task_logs_task_id (task_id, id),
+    INDEX idx_task_logs_task_time (task_id, log_time),
+    INDEX idx_task_logs_task_level_time (task_id, log_level, log_time)
 );
 
 -- 文件存储配置表
@@ -125,4 +135,28 @@ CREATE TABLE document_scopes (
     created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
     -- 外键约束
     CONSTRAINT fk_document_scopes_task FOREIGN KEY (task_id) REFERENCES analysis_tasks(id) ON DELETE CASCADE
+);
+
+-- 创建任务断点表
+CREATE TABLE task_checkpoints (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    task_id VARCHAR(36) NOT NULL,
+    step VARCHAR(50) NOT NULL,
+    unit_key VARCHAR(255) NOT NULL,
+    payload LONGTEXT,
+    completed_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    UNIQUE KEY unique_checkpoint (task_id, step, unit_key),
+    -- 外键约束
+    CONSTRAINT fk_task_checkpoints_task FOREIGN KEY (task_id) REFERENCES analysis_tasks(id) ON DELETE CASCADE
+);
+
+-- 创建大模型响应缓存表
+CREATE TABLE llm_response_cache (
+    cache_key VARCHAR(64) PRIMARY KEY,
+    model VARCHAR(100),
+    response LONGTEXT NOT NULL,
+    created_time TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    last_access_time TIMESTAMP NULL,
+    INDEX idx_llm_response_cache_created_time (created_time),
+    INDEX idx_llm_response_cache_last_access_time (last_access_time)
 ); 
\ No newline at end of file
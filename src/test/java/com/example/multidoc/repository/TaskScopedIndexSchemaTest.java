@@ -0,0 +1,180 @@
+package com.example.multidoc.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 任务相关大表索引的结构与迁移一致性检查
+ * 只解析 schema.sql 和迁移脚本，不连接数据库：每条访问路径（等值条件列 + 排序列）在 schema.sql 中
+ * 都必须有一个以这些列开头的索引，且迁移脚本创建的索引与 schema.sql 中的定义一致。
+ * 实际执行计划不在此验证
+ */
+public class TaskScopedIndexSchemaTest {
+
+    private static final Pattern CREATE_TABLE = Pattern.compile("CREATE TABLE (?:IF NOT EXISTS )?(\\w+)\\s*\\(", Pattern.CASE_INSENSITIVE);
+    private static final Pattern TABLE_INDEX = Pattern.compile("(?:UNIQUE KEY|INDEX)\\s+(\\w+)\\s*\\(([^)]*)\\)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern CREATE_INDEX = Pattern.compile("CREATE INDEX (\\w+) ON (\\w+)\\s*\\(([^)]*)\\)", Pattern.CASE_INSENSITIVE);
+
+    private static final List<String> MIGRATIONS = List.of(
+        "db/migration/V8__add_task_scoped_indexes.sql",
+        "db/migration/V9__add_task_log_cursor_index.sql",
+        "db/migration/V10__add_llm_response_cache_access_index.sql"
+    );
+
+    /**
+     * 仓库中按任务、字段、句子访问这些表的查询，每条路径注明来自哪个仓库方法
+     */
+    private static final List<AccessPath> ACCESS_PATHS = List.of(
+        new AccessPath("word_sentences", List.of("task_id"), List.of("sentence_index"),
+            WordSentenceRepository.class, "findByTaskOrderBySentenceIndex"),
+        new AccessPath("word_sentences", List.of("task_id", "source_file"), List.of("sentence_index"),
+            WordSentenceRepository.class, "findByTaskAndSourceFile"),
+        new AccessPath("field_sentence_relation", List.of("field_id"), List.of("relevance_score"),
+            FieldSentenceRelationRepository.class, "findByFieldIdOrderByRelevanceScoreDesc"),
+        new AccessPath("field_sentence_relation", List.of("sentence_id"), List.of("relevance_score"),
+            FieldSentenceRelationRepository.class, "findBySentenceIdOrderByRelevanceScoreDesc"),
+        // 规则提取一次加载任务的全部关联：先按任务取字段ID，再按字段ID和得分读取关联
+        new AccessPath("excel_fields", List.of("task_id"), List.of(),
+            FieldSentenceRelationRepository.class, "findByTaskOrderByFieldIdAndRelevanceScoreDesc"),
+        new AccessPath("field_sentence_relation", List.of("field_id"), List.of("relevance_score"),
+            FieldSentenceRelationRepository.class, "findByTaskOrderByFieldIdAndRelevanceScoreDesc"),
+        new AccessPath("task_logs", List.of("task_id"), List.of("log_time"),
+            TaskLogRepository.class, "findByTaskOrderByLogTimeDesc"),
+        new AccessPath("task_logs", List.of("task_id"), List.of("id"),
+            TaskLogRepository.class, "findEntriesAfter"),
+        new AccessPath("task_logs", List.of("task_id"), List.of("id"),
+            TaskLogRepository.class, "findLatestEntries"),
+        new AccessPath("task_logs", List.of("task_id", "log_level"), List.of("log_time"),
+            TaskLogRepository.class, "findByTaskAndLogLevelOrderByLogTimeDesc"),
+        new AccessPath("field_rules", List.of("task_id"), List.of(),
+            FieldRuleRepository.class, "findByTask"),
+        new AccessPath("field_rules", List.of("task_id", "category"), List.of(),
+            FieldRuleRepository.class, "deleteByTaskAndCategory"),
+        new AccessPath("field_rules", List.of("task_id", "rule_type"), List.of(),
+            FieldRuleRepository.class, "findByTaskAndRuleType"),
+        new AccessPath("excel_fields", List.of("task_id", "category"), List.of(),
+            ExcelFieldRepository.class, "findByTaskAndCategory")
+    );
+
+    /**
+     * 列出的访问路径必须对应仓库中仍然存在的方法，方法改名或删除时需同步更新此列表
+     */
+    @Test
+    public void testAccessPathsReferToRepositoryMethods() {
+        for (AccessPath path : ACCESS_PATHS) {
+            assertTrue(Arrays.stream(path.repository.getMethods()).anyMatch(m -> m.getName().equals(path.method)),
+                "仓库方法不存在: " + path);
+        }
+    }
+
+    @Test
+    public void testSchemaIndexesServeAccessPaths() throws IOException {
+        Map<String, List<List<String>>> indexes = parseTableIndexes(readResource("schema.sql"));
+        for (AccessPath path : ACCESS_PATHS) {
+            assertTrue(path.isServedByAny(indexes.getOrDefault(path.table, List.of())),
+                "schema.sql 中没有可用于该查询的索引: " + path);
+        }
+    }
+
+    @Test
+    public void testMigrationMatchesSchema() throws IOException {
+        Map<String, List<String>> schemaIndexes = new HashMap<>();
+        Matcher tableIndex = TABLE_INDEX.matcher(readResource("schema.sql"));
+        while (tableIndex.find()) {
+            schemaIndexes.put(tableIndex.group(1), columns(tableIndex.group(2)));
+        }
+
+        for (String migration : MIGRATIONS) {
+            Matcher createIndex = CREATE_INDEX.matcher(readResource(migration));
+            int count = 0;
+            while (createIndex.find()) {
+                count++;
+                assertEquals(schemaIndexes.get(createIndex.group(1)), columns(createIndex.group(3)),
+                    "迁移脚本与 schema.sql 中的索引定义不一致: " + createIndex.group(1));
+            }
+            assertTrue(count > 0, "迁移脚本中没有索引: " + migration);
+        }
+    }
+
+    /**
+     * 解析 CREATE TABLE 中声明的索引，按表名分组
+     */
+    private Map<String, List<List<String>>> parseTableIndexes(String sql) {
+        Map<String, List<List<String>>> indexes = new HashMap<>();
+        Matcher table = CREATE_TABLE.matcher(sql);
+        List<int[]> bounds = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        while (table.find()) {
+            bounds.add(new int[]{table.end(), sql.indexOf(");", table.end())});
+            names.add(table.group(1).toLowerCase());
+        }
+        for (int i = 0; i < names.size(); i++) {
+            Matcher index = TABLE_INDEX.matcher(sql.substring(bounds.get(i)[0], bounds.get(i)[1]));
+            while (index.find()) {
+                indexes.computeIfAbsent(names.get(i), name -> new ArrayList<>()).add(columns(index.group(2)));
+            }
+        }
+        return indexes;
+    }
+
+    private static List<String> columns(String list) {
+        return Arrays.stream(list.split(",")).map(column -> column.trim().toLowerCase()).toList();
+    }
+
+    private String readResource(String name) throws IOException {
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream(name)) {
+            assertNotNull(in, "找不到资源: " + name);
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static class AccessPath {
+
+        private final String table;
+        private final List<String> equalityColumns;
+        private final List<String> orderColumns;
+        private final Class<?> repository;
+        private final String method;
+
+        AccessPath(String table, List<String> equalityColumns, List<String> orderColumns,
+                   Class<?> repository, String method) {
+            this.table = table;
+            this.equalityColumns = equalityColumns;
+            this.orderColumns = orderColumns;
+            this.repository = repository;
+            this.method = method;
+        }
+
+        @Override
+        public String toString() {
+            return repository.getSimpleName() + "." + method + " -> " + table + " " + equalityColumns + " " + orderColumns;
+        }
+
+        /**
+         * 索引以全部等值条件列（任意顺序）开头、随后是排序列时，查询可按索引范围读取且无需排序
+         */
+        boolean isServedByAny(List<List<String>> indexes) {
+            int length = equalityColumns.size() + orderColumns.size();
+            for (List<String> index : indexes) {
+                if (index.size() >= length
+                        && index.subList(0, equalityColumns.size()).containsAll(equalityColumns)
+                        && index.subList(equalityColumns.size(), length).equals(orderColumns)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.multidoc.repository;
+
+import com.example.multidoc.model.AnalysisTask;
+import com.example.multidoc.model.WordSentence;
+import com.example.multidoc.util.ResourceLimiter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class WordSentenceBatchRepositoryTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @InjectMocks
+    private WordSentenceBatchRepository batchRepository;
+
+    private final ResourceLimiter dbLimiter = new ResourceLimiter("db", 2);
+
+    @BeforeEach
+    public void setup() {
+        ReflectionTestUtils.setField(batchRepository, "batchSize", 100);
+        ReflectionTestUtils.setField(batchRepository, "dbLimiter", dbLimiter);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testSaveAllInsertsInChunks() {
+        AnalysisTask task = new AnalysisTask();
+        task.setId("task-1");
+        List<WordSentence> sentences = new ArrayList<>();
+        for (int i = 0; i < 250; i++) {
+            WordSentence sentence = new WordSentence();
+            sentence.setTask(task);
+            sentence.setSentenceIndex(i);
+            sentence.setContent("句子" + i);
+            sentence.setSourceFile("制度.docx");
+            sentences.add(sentence);
+        }
+
+        batchRepository.saveAll(sentences);
+
+        ArgumentCaptor<Collection<WordSentence>> batches = ArgumentCaptor.forClass(Collection.class);
+        verify(jdbcTemplate, times(3)).batchUpdate(startsWith("INSERT INTO word_sentences"), batches.capture(),
+            anyInt(), any(ParameterizedPreparedStatementSetter.class));
+        assertEquals(List.of(100, 100, 50), batches.getAllValues().stream().map(Collection::size).toList());
+        assertTrue(batches.getAllValues().get(2).contains(sentences.get(249)));
+        // 每批写入后归还数据库许可
+        assertEquals(2, dbLimiter.availablePermits());
+    }
+}
@@ -1,6 +1,8 @@
 package com.example.multidoc.service;
 
 import com.example.multidoc.model.ExcelField;
+import com.example.multidoc.util.ResourceLimiter;
+import com.example.multidoc.util.TokenBucketRateLimiter;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
@@ -27,13 +29,22 @@ import org.springframework.ai.chat.messages.AssistantMessage;
 import org.springframework.test.util.ReflectionTestUtils;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 @ExtendWith(MockitoExtension.class)
 public class AIServiceBatchTest {
@@ -46,6 +57,15 @@ public class AIServiceBatchTest {
     @Spy
     private ObjectMapper objectMapper = new ObjectMapper();
 
+    @Spy
+    private ResourceLimiter llmLimiter = new ResourceLimiter("llm", 4);
+
+    @Mock
+    private LlmResponseCache responseCache;
+
+    @Spy
+    private TokenBucketRateLimiter llmRateLimiter = new TokenBucketRateLimiter(6000, 10000000);
+
     @InjectMocks
     private AIService aiService;
     
@@ -89,6 +109,89 @@ public class AIServiceBatchTest {
         }
     }
     
+    /**
+     * 测试并发批次处理功能
+     * 并发模式下应处理全部批次、按批次完成数报告进度，并合并出与串行模式相同结构的结果
+     */
+    @Test
+    public void testConcurrentBatchProcessing() throws Exception {
+        List<ExcelField> fields = createMockFields(120); // 3个批次
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        ReflectionTestUtils.setField(aiService, "llmRequestExecutor", executor);
+        ReflectionTestUtils.setField(aiService, "concurrentCategorizationEnabled", true);
+        
+        mockChatClientResponse();
+        
+        AtomicInteger callbackCount = new AtomicInteger(0);
+        List<Integer> reportedTotals = new ArrayList<>();
+        try {
+            JsonNode result = aiService.categorizeFields(fields, (currentBatch, totalBatches) -> {
+                callbackCount.incrementAndGet();
+                reportedTotals.add(totalBatches);
+            });
+            
+            assertNotNull(result, "结果不应为空");
+            assertTrue(result.get("categories").isArray(), "categories应为数组");
+            // 每个批次返回相同的5个分类，合并后应去重为5个
+            assertEquals(5, result.get("categories").size());
+            assertEquals(3, callbackCount.get(), "每个批次完成时都应报告进度");
+            assertTrue(reportedTotals.stream().allMatch(total -> total == 3), "总批次数应为3");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    /**
+     * 测试并发批次失败后的中止
+     * 一个批次失败后，尚未开始的批次不应再调用大模型，抛出的应是最先失败批次的异常
+     */
+    @Test
+    public void testConcurrentFailureSkipsPendingBatches() throws Exception {
+        List<ExcelField> fields = createMockFields(120); // 3个批次
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        ReflectionTestUtils.setField(aiService, "llmRequestExecutor", executor);
+        ReflectionTestUtils.setField(aiService, "concurrentCategorizationEnabled", true);
+        
+        mockChatClientResponse();
+        
+        try {
+            RuntimeException e = assertThrows(RuntimeException.class, () ->
+                aiService.categorizeFields(fields, null, new HashMap<>(), (batchKey, batchResult) -> {
+                    throw new RuntimeException("断点保存失败");
+                }));
+            
+            assertEquals("断点保存失败", e.getMessage());
+            verify(chatClient, times(1)).call(any(Prompt.class));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    /**
+     * 测试批次断点复用
+     * 已有断点结果的批次不应再调用大模型，只有新完成的批次触发断点回调
+     */
+    @Test
+    public void testBatchCheckpointReuse() throws Exception {
+        List<ExcelField> fields = createMockFields(120); // 3个批次
+        mockChatClientResponse();
+        
+        Map<String, JsonNode> completedBatches = new HashMap<>();
+        String firstBatchKey = AIService.batchKey(fields.subList(0, 50));
+        completedBatches.put(firstBatchKey, objectMapper.readTree(createMockCategoryJson()));
+        
+        List<String> checkpointedKeys = new ArrayList<>();
+        JsonNode result = aiService.categorizeFields(fields, null, completedBatches,
+            (batchKey, batchResult) -> checkpointedKeys.add(batchKey));
+        
+        assertEquals(5, result.get("categories").size());
+        verify(chatClient, times(2)).call(any(Prompt.class));
+        assertEquals(2, checkpointedKeys.size(), "只有新完成的批次应记录断点");
+        assertFalse(checkpointedKeys.contains(firstBatchKey));
+        assertEquals(firstBatchKey, AIService.batchKey(new ArrayList<>(fields.subList(0, 50))),
+            "相同字段的批次标识应保持一致");
+    }
+    
     /**
      * 模拟ChatClient返回响应
      */
@@ -0,0 +1,132 @@
+package com.example.multidoc.service;
+
+import com.example.multidoc.util.ResourceLimiter;
+import com.example.multidoc.util.TokenBucketRateLimiter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.ai.chat.ChatClient;
+import org.springframework.ai.openai.api.OpenAiApi;
+import org.springframework.ai.openai.api.OpenAiApi.ChatCompletionChunk;
+import org.springframework.ai.openai.api.OpenAiApi.ChatCompletionFinishReason;
+import org.springframework.ai.openai.api.OpenAiApi.ChatCompletionMessage;
+import org.springframework.ai.openai.api.OpenAiApi.ChatCompletionRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class AIServiceStreamingTest {
+
+    @Mock
+    private ChatClient chatClient;
+
+    @Mock
+    private OpenAiApi openAiApi;
+
+    @Mock
+    private LlmResponseCache responseCache;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @Spy
+    private ResourceLimiter llmLimiter = new ResourceLimiter("llm", 4);
+
+    @Spy
+    private TokenBucketRateLimiter llmRateLimiter = new TokenBucketRateLimiter(6000, 10000000);
+
+    @InjectMocks
+    private AIService aiService;
+
+    @BeforeEach
+    public void setup() {
+        ReflectionTestUtils.setField(aiService, "streamingEnabled", true);
+        ReflectionTestUtils.setField(aiService, "streamingIdleTimeoutSeconds", 5L);
+        ReflectionTestUtils.setField(aiService, "model", "deepseek-chat");
+        ReflectionTestUtils.setField(aiService, "temperature", 0.2);
+        ReflectionTestUtils.setField(aiService, "maxTokens", 8000);
+    }
+
+    /**
+     * 流式响应应拼接为完整内容，并记录首Token耗时和生成速度
+     */
+    @Test
+    public void testStreamingPromptAssemblesContent() {
+        when(openAiApi.chatCompletionStream(any(ChatCompletionRequest.class)))
+            .thenReturn(Flux.fromIterable(chunks(null, "```json\n{\"rules\": [", "{\"type\": \"显式\"}", "]}\n```")));
+
+        String result = aiService.executePrompt("系统提示", "请返回JSON格式的结果");
+
+        assertEquals("{\"rules\": [{\"type\": \"显式\"}]}", result);
+        verify(chatClient, never()).call(any(org.springframework.ai.chat.prompt.Prompt.class));
+        Map<String, Object> statistics = aiService.getStreamingStatistics();
+        assertEquals(1L, statistics.get("requests"));
+        // Token数按生成内容估算，而不是按分块数计数
+        String streamed = "```json\n{\"rules\": [{\"type\": \"显式\"}]}\n```";
+        assertEquals((long) TokenBucketRateLimiter.estimateTokens(streamed),
+            ((AtomicLong) ReflectionTestUtils.getField(aiService, "totalStreamedTokens")).get());
+    }
+
+    /**
+     * JSON格式错误时应立即中止流，不再消费后续内容，并重试
+     */
+    @Test
+    public void testMalformedJsonFailsFast() {
+        AtomicInteger emitted = new AtomicInteger();
+        List<ChatCompletionChunk> malformed = chunks(null, "{\"rules\": [", "}", "后续内容1", "后续内容2");
+        when(openAiApi.chatCompletionStream(any(ChatCompletionRequest.class)))
+            .thenReturn(Flux.fromIterable(malformed).doOnNext(chunk -> emitted.incrementAndGet()))
+            .thenReturn(Flux.fromIterable(chunks(null, "{\"rules\": []}")));
+
+        String result = aiService.executePrompt("系统提示", "请返回JSON格式的结果");
+
+        assertEquals("{\"rules\": []}", result);
+        assertEquals(2, emitted.get(), "格式错误后不应继续接收后续内容");
+        verify(openAiApi, times(2)).chatCompletionStream(any(ChatCompletionRequest.class));
+    }
+
+    /**
+     * 达到最大Token数时应视为截断并重试
+     */
+    @Test
+    public void testLengthFinishReasonIsTreatedAsTruncation() {
+        when(openAiApi.chatCompletionStream(any(ChatCompletionRequest.class)))
+            .thenReturn(Flux.fromIterable(chunks(ChatCompletionFinishReason.LENGTH, "{\"rules\": [", "{\"type\"")))
+            .thenReturn(Flux.fromIterable(chunks(null, "{\"rules\": []}")));
+
+        String result = aiService.executePrompt("系统提示", "请返回JSON格式的结果");
+
+        assertEquals("{\"rules\": []}", result);
+        verify(openAiApi, times(2)).chatCompletionStream(any(ChatCompletionRequest.class));
+    }
+
+    /**
+     * 构造流式响应分片，最后一个分片带有指定的结束原因
+     */
+    private List<ChatCompletionChunk> chunks(ChatCompletionFinishReason lastFinishReason, String... deltas) {
+        List<ChatCompletionChunk> chunks = new ArrayList<>();
+        for (int i = 0; i < deltas.length; i++) {
+            ChatCompletionFinishReason finishReason = i == deltas.length - 1 ? lastFinishReason : null;
+            ChatCompletionChunk.ChunkChoice choice = new ChatCompletionChunk.ChunkChoice(finishReason, 0,
+                new ChatCompletionMessage(deltas[i], ChatCompletionMessage.Role.ASSISTANT), null);
+            chunks.add(new ChatCompletionChunk("chunk-" + i, List.of(choice), 0L, "deepseek-chat", null,
+                "chat.completion.chunk"));
+        }
+        return chunks;
+    }
+}
@@ -3,21 +3,28 @@ package com.example.multidoc.service;
 import com.example.multidoc.model.*;
 import com.example.multidoc.repository.*;
 import com.example.multidoc.util.ExcelProcessor;
+import com.example.multidoc.util.ResourceLimiter;
+import com.example.multidoc.util.WordProcessor;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.task.SyncTaskExecutor;
 import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
@@ -54,6 +61,15 @@ public class AnalysisServiceResumabilityTest {
     @Mock(lenient = true)
     private Executor analysisTaskExecutor;
 
+    @Spy
+    private Executor ruleExtractionExecutor = new SyncTaskExecutor();
+
+    @Mock(lenient = true)
+    private DocumentScopeRepository documentScopeRepository;
+
+    @Mock(lenient = true)
+    private TaskCheckpointRepository checkpointRepository;
+
     @Mock(lenient = true)
     private FieldSentenceRelationRepository relationRepository;
 
@@ -63,9 +79,18 @@ public class AnalysisServiceResumabilityTest {
     @Mock(lenient = true)
     private TaskService taskService;
 
+    @Mock(lenient = true)
+    private TaskProgressPublisher progressPublisher;
+
     @Spy
     private ObjectMapper objectMapper = new ObjectMapper();
 
+    @Spy
+    private ResourceLimiter dbLimiter = new ResourceLimiter("db", 4);
+
+    @Spy
+    private ResourceLimiter diskLimiter = new ResourceLimiter("disk", 4);
+
     private AnalysisTask mockTask;
     private final String TEST_TASK_ID = "test-task-id";
     private FileStorageConfig batchSizeConfig;
@@ -117,7 +142,7 @@ public class AnalysisServiceResumabilityTest {
         addMockField(fields2, "用户表", "邮箱", "STRING", "用户邮箱地址");
         
         // 使用宽松模式
-        when(aiService.categorizeFields(anyList(), any())).thenReturn(categoriesNode);
+        when(aiService.categorizeFields(anyList(), any(), anyMap(), any())).thenReturn(categoriesNode);
         
         // 模拟规则提取结果
         ObjectNode rulesNode = objectMapper.createObjectNode();
@@ -164,13 +189,18 @@ public class AnalysisServiceResumabilityTest {
             mockFields.add(field);
         }
         
-        // Mock DocumentService的processExcelFile方法，让其返回一些元素
+        // Mock DocumentService的processExcelFiles方法，让每个文件都返回一些元素
         List<ExcelProcessor.ElementInfo> mockElements = new ArrayList<>();
         ExcelProcessor.ElementInfo element = new ExcelProcessor.ElementInfo();
         element.setTableName("测试表");
         element.setValue("测试字段");
         mockElements.add(element);
-        when(documentService.processExcelFile(anyString())).thenReturn(mockElements);
+        when(documentService.processExcelFiles(anyList())).thenAnswer(invocation -> {
+            List<String> paths = invocation.getArgument(0);
+            List<List<ExcelProcessor.ElementInfo>> results = new ArrayList<>();
+            paths.forEach(path -> results.add(mockElements));
+            return results;
+        });
         
         // Mock数据清理和保存
         doNothing().when(fieldRepository).deleteByTask(any(AnalysisTask.class));
@@ -182,10 +212,68 @@ public class AnalysisServiceResumabilityTest {
         // 验证：
         // 1. 由于是恢复模式且步骤未完成，应调用fieldRepository.deleteByTask清理之前的数据
         verify(fieldRepository).deleteByTask(any(AnalysisTask.class));
-        // 2. 应该调用documentService.processExcelFile处理Excel文件
-        verify(documentService, atLeastOnce()).processExcelFile(anyString());
+        // 2. 应该调用documentService.processExcelFiles处理Excel文件
+        verify(documentService, atLeastOnce()).processExcelFiles(anyList());
     }
     
+    @Test
+    public void testWordSentencesSavedBeforeFieldCategorization() throws IOException {
+        // 从头执行，报送范围提取步骤解析的文档用于保存句子，随后释放，不带入字段分类步骤
+        List<WordProcessor.ParsedDocument> documents = List.of(
+            new WordProcessor.ParsedDocument("test_doc1.docx", "test_doc1.docx", List.of("第一条"), null));
+        when(documentService.parseWordDocuments(anyList())).thenReturn(documents);
+        ExcelProcessor.ElementInfo element = new ExcelProcessor.ElementInfo();
+        element.setTableName("用户表");
+        element.setValue("用户ID");
+        when(documentService.processExcelFiles(anyList())).thenReturn(List.of(List.of(element), List.of()));
+        when(fieldRepository.save(any(ExcelField.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        analysisService.processTask(TEST_TASK_ID, false);
+
+        InOrder inOrder = inOrder(documentService, aiService);
+        inOrder.verify(documentService).processWordDocuments(mockTask, documents);
+        inOrder.verify(aiService).categorizeFields(anyList(), any(), anyMap(), any());
+        // 句子处理步骤不再重复解析和保存
+        verify(documentService).processWordDocuments(any(AnalysisTask.class), any());
+        verify(sentenceRepository).deleteByTask(mockTask);
+    }
+
+    @Test
+    public void testResumeAfterFieldProcessingFailureDoesNotDuplicateSentences() throws IOException {
+        // 第一次运行：报送范围提取步骤已保存句子，字段处理步骤失败
+        List<WordProcessor.ParsedDocument> documents = List.of(
+            new WordProcessor.ParsedDocument("test_doc1.docx", "test_doc1.docx", List.of("第一条"), null));
+        when(documentService.parseWordDocuments(anyList())).thenReturn(documents);
+        when(documentService.processExcelFiles(anyList())).thenThrow(new RuntimeException("Excel读取失败"));
+
+        assertThrows(RuntimeException.class, () -> analysisService.processTask(TEST_TASK_ID, false));
+        assertEquals("document_scope_extraction", mockTask.getLastCompletedStep());
+
+        // 从页面恢复：Word处理步骤重新解析，写入前先清理上次保存的句子
+        reset(documentService);
+        when(documentService.processExcelFiles(anyList())).thenReturn(List.of(List.of(), List.of()));
+        analysisService.processTask(TEST_TASK_ID, false);
+
+        InOrder inOrder = inOrder(sentenceRepository, documentService);
+        inOrder.verify(sentenceRepository).deleteByTask(mockTask);
+        inOrder.verify(documentService).processWordDocuments(mockTask, null);
+        verify(sentenceRepository, times(2)).deleteByTask(mockTask);
+    }
+
+    @Test
+    public void testUnparsedDocumentLeavesSentencesToWordStep() throws IOException {
+        // 有文档解析失败时报送范围提取步骤不保存句子，由Word处理步骤报错
+        List<WordProcessor.ParsedDocument> documents = List.of(new WordProcessor.ParsedDocument(
+            "test_doc1.docx", "test_doc1.docx", null, new IOException("文件不存在")));
+        when(documentService.parseWordDocuments(anyList())).thenReturn(documents);
+        when(documentService.processExcelFiles(anyList())).thenReturn(List.of(List.of(), List.of()));
+
+        analysisService.processTask(TEST_TASK_ID, false);
+
+        verify(documentService, never()).processWordDocuments(mockTask, documents);
+        verify(documentService).processWordDocuments(mockTask, null);
+    }
+
     @Test
     public void testWordProcessingStepResumability() throws IOException {
         // 设置任务已完成Excel处理步骤
@@ -193,7 +281,7 @@ public class AnalysisServiceResumabilityTest {
         
         // Mock文档处理和数据清理
         doNothing().when(sentenceRepository).deleteByTask(any(AnalysisTask.class));
-        doNothing().when(documentService).processWordDocuments(any(AnalysisTask.class));
+        doNothing().when(documentService).processWordDocuments(any(AnalysisTask.class), any());
         
         // 执行恢复处理
         analysisService.processTask(TEST_TASK_ID, true);
@@ -202,7 +290,7 @@ public class AnalysisServiceResumabilityTest {
         // 1. 应该清理之前的句子数据
         verify(sentenceRepository).deleteByTask(any(AnalysisTask.class));
         // 2. 应该调用文档处理服务
-        verify(documentService).processWordDocuments(any(AnalysisTask.class));
+        verify(documentService).processWordDocuments(any(AnalysisTask.class), any());
     }
     
     @Test
@@ -219,7 +307,7 @@ public class AnalysisServiceResumabilityTest {
         
         // 验证：
         // 1. 应该调用Lucene服务计算相关性
-        verify(luceneService).calculateRelevance(anyList(), anyList());
+        verify(luceneService).calculateRelevance(anyString(), anyList(), anyList());
     }
     
     @Test
@@ -246,21 +334,102 @@ public class AnalysisServiceResumabilityTest {
         when(fieldRepository.findByTaskAndCategory(any(AnalysisTask.class), eq("联系方式")))
             .thenReturn(Collections.singletonList(field2));
             
-        // 使用anyLong()而不是固定值，解决参数匹配问题
-        when(relationRepository.findByFieldIdOrderByRelevanceScoreDesc(anyLong()))
+        when(relationRepository.findByTaskOrderByFieldIdAndRelevanceScoreDesc(any(AnalysisTask.class)))
             .thenReturn(new ArrayList<>());
             
-        doNothing().when(ruleRepository).deleteByTask(any(AnalysisTask.class));
-        when(ruleRepository.save(any(FieldRule.class))).thenReturn(new FieldRule());
+        when(checkpointRepository.findByTaskAndStep(any(AnalysisTask.class), eq("rule_extraction")))
+            .thenReturn(new ArrayList<>());
+        when(ruleRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
         
         // 执行恢复处理
         analysisService.processTask(TEST_TASK_ID, true);
         
         // 验证：
-        // 1. 应该清理之前的规则数据
-        verify(ruleRepository).deleteByTask(any(AnalysisTask.class));
+        // 1. 不应整体清理之前的规则数据
+        verify(ruleRepository, never()).deleteByTask(any(AnalysisTask.class));
         // 2. 应该查询不同的分类
         verify(fieldRepository).findDistinctCategoriesByTask(any(AnalysisTask.class));
+        // 3. 每个分类的规则应独立提交并记录断点
+        verify(ruleRepository, times(2)).saveAll(anyList());
+        verify(checkpointRepository, times(2)).save(any(TaskCheckpoint.class));
+        // 4. 关联和报送范围按任务整体加载一次，不按字段或分类逐个查询
+        verify(relationRepository, times(1)).findByTaskOrderByFieldIdAndRelevanceScoreDesc(any(AnalysisTask.class));
+        verify(relationRepository, never()).findByFieldIdOrderByRelevanceScoreDesc(anyLong());
+        verify(documentScopeRepository, times(1)).findByTask(any(AnalysisTask.class));
+        verify(sentenceRepository, never()).findByTask(any(AnalysisTask.class));
+    }
+    
+    @Test
+    public void testRuleExtractionSkipsCompletedCategories() {
+        // 设置任务已完成Lucene分析步骤，且“基本信息”分类的规则已在上次运行中提交
+        mockTask.setLastCompletedStep("lucene_analysis");
+        
+        ExcelField field2 = new ExcelField();
+        field2.setId(2L);
+        field2.setFieldName("测试字段2");
+        field2.setCategory("联系方式");
+        
+        when(fieldRepository.findDistinctCategoriesByTask(any(AnalysisTask.class)))
+            .thenReturn(Arrays.asList("基本信息", "联系方式"));
+        when(fieldRepository.findByTaskAndCategory(any(AnalysisTask.class), eq("联系方式")))
+            .thenReturn(Collections.singletonList(field2));
+        when(relationRepository.findByTaskOrderByFieldIdAndRelevanceScoreDesc(any(AnalysisTask.class)))
+            .thenReturn(new ArrayList<>());
+        when(checkpointRepository.findByTaskAndStep(any(AnalysisTask.class), eq("rule_extraction")))
+            .thenReturn(Collections.singletonList(new TaskCheckpoint(mockTask, "rule_extraction", "基本信息", "1")));
+        when(ruleRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        
+        // 断点总是被读取，与是否以恢复方式执行无关
+        analysisService.processTask(TEST_TASK_ID, false);
+        
+        // 验证：已完成的分类不应再次提取，只提取剩余分类
+        verify(fieldRepository, never()).findByTaskAndCategory(any(AnalysisTask.class), eq("基本信息"));
+        verify(fieldRepository).findByTaskAndCategory(any(AnalysisTask.class), eq("联系方式"));
+        verify(aiService, times(1)).extractRules(anyString(), anyList());
+        // 未完成分类残留的部分规则应被清理
+        verify(ruleRepository).deleteByTaskAndCategory(any(AnalysisTask.class), eq("联系方式"));
+        verify(ruleRepository, never()).deleteByTaskAndCategory(any(AnalysisTask.class), eq("基本信息"));
+    }
+    
+    @Test
+    public void testRuleExtractionIsolatesCategoryFailures() {
+        mockTask.setLastCompletedStep("lucene_analysis");
+        
+        ExcelField field1 = new ExcelField();
+        field1.setId(1L);
+        field1.setFieldName("测试字段1");
+        field1.setCategory("基本信息");
+        
+        ExcelField field2 = new ExcelField();
+        field2.setId(2L);
+        field2.setFieldName("测试字段2");
+        field2.setCategory("联系方式");
+        
+        when(fieldRepository.findDistinctCategoriesByTask(any(AnalysisTask.class)))
+            .thenReturn(Arrays.asList("基本信息", "联系方式"));
+        when(fieldRepository.findByTaskAndCategory(any(AnalysisTask.class), eq("基本信息")))
+            .thenReturn(Collections.singletonList(field1));
+        when(fieldRepository.findByTaskAndCategory(any(AnalysisTask.class), eq("联系方式")))
+            .thenReturn(Collections.singletonList(field2));
+        when(relationRepository.findByTaskOrderByFieldIdAndRelevanceScoreDesc(any(AnalysisTask.class)))
+            .thenReturn(new ArrayList<>());
+        when(checkpointRepository.findByTaskAndStep(any(AnalysisTask.class), eq("rule_extraction")))
+            .thenReturn(new ArrayList<>());
+        when(ruleRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        // 第一个分类的规则保存失败
+        when(ruleRepository.saveAll(argThat(rules -> rules != null && rules.iterator().hasNext()
+                && "基本信息".equals(((FieldRule) rules.iterator().next()).getCategory()))))
+            .thenThrow(new RuntimeException("模拟保存失败"));
+        
+        // 执行恢复处理，应因分类失败而抛出异常
+        assertThrows(RuntimeException.class,
+            () -> analysisService.processTask(TEST_TASK_ID, true));
+        
+        // 验证：另一个分类仍完成了规则提取，任务未标记为规则提取完成
+        verify(fieldRepository).findByTaskAndCategory(any(AnalysisTask.class), eq("联系方式"));
+        verify(aiService, times(2)).extractRules(anyString(), anyList());
+        verify(checkpointRepository, times(1)).save(argThat(checkpoint -> "联系方式".equals(checkpoint.getUnitKey())));
+        assertNotEquals("rule_extraction", mockTask.getLastCompletedStep());
     }
     
     @Test
@@ -298,7 +467,7 @@ public class AnalysisServiceResumabilityTest {
         verify(fieldRepository, never()).deleteByTask(any(AnalysisTask.class));
         
         // 2. 不应调用Word处理相关方法
-        verify(documentService, never()).processWordDocuments(any(AnalysisTask.class));
+        verify(documentService, never()).processWordDocuments(any(AnalysisTask.class), any());
     }
     
     @Test
@@ -311,12 +480,13 @@ public class AnalysisServiceResumabilityTest {
         
         // 模拟executeAnalysisTask方法的行为
         CompletableFuture<AnalysisResult> future = CompletableFuture.completedFuture(new AnalysisResult());
-        doReturn(future).when(spyService).executeAnalysisTask(anyString());
+        doReturn(future).when(spyService).executeAnalysisTask(anyString(), anyBoolean());
         
         // 执行恢复
         spyService.resumeTask(TEST_TASK_ID);
         
-        // 验证任务状态已更新为PENDING
+        // 验证任务状态已更新为PENDING，并以恢复方式执行
         verify(taskRepository).save(argThat(task -> task.getStatus() == AnalysisTask.TaskStatus.PENDING));
+        verify(spyService).executeAnalysisTask(TEST_TASK_ID, true);
     }
 } 
\ No newline at end of file
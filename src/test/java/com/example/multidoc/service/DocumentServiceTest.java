@@ -0,0 +1,200 @@
+package com.example.multidoc.service;
+
+import com.example.multidoc.model.AnalysisTask;
+import com.example.multidoc.model.WordSentence;
+import com.example.multidoc.repository.WordSentenceBatchRepository;
+import com.example.multidoc.util.ExcelProcessor;
+import com.example.multidoc.util.JdbcBatchWriter;
+import com.example.multidoc.util.ResourceLimiter;
+import com.example.multidoc.util.WordProcessor;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class DocumentServiceTest {
+
+    @Mock(lenient = true)
+    private WordSentenceBatchRepository wordSentenceBatchRepository;
+
+    @Spy
+    private WordProcessor wordProcessor = new WordProcessor();
+
+    @Spy
+    private ExcelProcessor excelProcessor = new ExcelProcessor();
+
+    @InjectMocks
+    private DocumentService documentService;
+
+    @TempDir
+    Path tempDir;
+
+    private final List<WordSentence> savedSentences = new ArrayList<>();
+
+    private final ExecutorService parsingExecutor = Executors.newFixedThreadPool(4);
+
+    @BeforeEach
+    public void setup() {
+        ReflectionTestUtils.setField(documentService, "wordParsingExecutor", parsingExecutor);
+        ReflectionTestUtils.setField(documentService, "excelParsingExecutor", parsingExecutor);
+        ReflectionTestUtils.setField(documentService, "diskLimiter", new ResourceLimiter("disk", 2));
+        when(wordSentenceBatchRepository.openWriter())
+            .thenAnswer(invocation -> new JdbcBatchWriter<WordSentence>(100, savedSentences::addAll));
+    }
+
+    /**
+     * 句子直接从各个源文档拆分并写入，来源文件取自所在文档，序号跨文档连续
+     */
+    @Test
+    public void testSentencesKeepTheirSourceFile() throws IOException {
+        String first = createDocument("policy-1.docx",
+            "第一条 资产负债表中的资产总计应当等于负债合计与所有者权益合计之和，各项数据应当与总账、明细账和会计报表核对一致，差异应当在报送前查明原因。",
+            "第二条 贷款余额按照借款人所属行业进行分类填报，不得将同一笔贷款重复计入多个行业，行业分类标准以国家统计局最新发布的版本为准。");
+        String second = createDocument("policy-2.docx",
+            "第一条 报表应于每月结束后十五日内报送，遇节假日顺延，逾期报送的应当书面说明原因。");
+
+        AnalysisTask task = new AnalysisTask();
+        task.setWordFilePaths(List.of(first, second));
+
+        documentService.processWordDocuments(task);
+
+        assertEquals(3, savedSentences.size());
+        assertEquals("policy-1.docx", savedSentences.get(0).getSourceFile());
+        assertEquals("policy-1.docx", savedSentences.get(1).getSourceFile());
+        assertEquals("policy-2.docx", savedSentences.get(2).getSourceFile());
+        for (int i = 0; i < savedSentences.size(); i++) {
+            assertEquals(i, savedSentences.get(i).getSentenceIndex());
+            assertSame(task, savedSentences.get(i).getTask());
+        }
+        assertEquals(0, savedSentences.get(2).getStartPosition(), "位置应相对于所在文档");
+    }
+
+    /**
+     * 前面文档的句子在其解析完成后即写入，不等待后续文档解析
+     */
+    @Test
+    public void testSentencesWrittenBeforeLaterDocumentsAreParsed() throws IOException {
+        String first = createDocument("policy-1.docx",
+            "第一条 资产负债表中的资产总计应当等于负债合计与所有者权益合计之和，各项数据应当与总账、明细账和会计报表核对一致。");
+        String second = createDocument("policy-2.docx",
+            "第一条 报表应于每月结束后十五日内报送，遇节假日顺延，逾期报送的应当书面说明原因。");
+        CountDownLatch firstWritten = new CountDownLatch(1);
+        when(wordSentenceBatchRepository.openWriter()).thenAnswer(invocation -> new JdbcBatchWriter<WordSentence>(1, batch -> {
+            savedSentences.addAll(batch);
+            firstWritten.countDown();
+        }));
+        lenient().doAnswer(invocation -> {
+            assertTrue(firstWritten.await(5, TimeUnit.SECONDS), "第一个文档的句子应在第二个文档解析完成前写入");
+            return invocation.callRealMethod();
+        }).when(wordProcessor).parseDocument(second);
+
+        AnalysisTask task = new AnalysisTask();
+        task.setWordFilePaths(List.of(first, second));
+        documentService.processWordDocuments(task);
+
+        assertEquals(List.of("policy-1.docx", "policy-2.docx"),
+            savedSentences.stream().map(WordSentence::getSourceFile).toList());
+        assertEquals(List.of(0, 1), savedSentences.stream().map(WordSentence::getSentenceIndex).toList());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        parsingExecutor.shutdownNow();
+    }
+
+    /**
+     * 解析一次的文档同时用于提取前缀和拆分句子，解析失败的文档不影响其他文档
+     */
+    @Test
+    public void testParsedDocumentsServePrefixAndSentences() throws IOException {
+        String paragraph = "第一条 本办法适用于在中华人民共和国境内依法设立的商业银行，其他金融机构参照执行，具体报送范围另行规定。";
+        String existing = createDocument("policy-1.docx", paragraph);
+        String missing = tempDir.resolve("missing.docx").toString();
+
+        List<WordProcessor.ParsedDocument> documents = documentService.parseWordDocuments(List.of(missing, existing));
+
+        assertEquals(2, documents.size());
+        assertFalse(documents.get(0).isParsed());
+        assertTrue(documents.get(1).isParsed());
+        assertEquals(paragraph + "\n", documentService.extractDocumentPrefix(documents.get(1)));
+        assertThrows(IOException.class, () -> documentService.extractDocumentPrefix(documents.get(0)));
+
+        AnalysisTask task = new AnalysisTask();
+        documentService.processWordDocuments(task, documents.subList(1, 2));
+        assertEquals(1, savedSentences.size());
+        assertEquals("policy-1.docx", savedSentences.get(0).getSourceFile());
+        verify(wordProcessor, times(2)).parseDocument(anyString());
+    }
+
+    @Test
+    public void testMissingDocumentFails() {
+        AnalysisTask task = new AnalysisTask();
+        task.setWordFilePaths(List.of(tempDir.resolve("missing.docx").toString()));
+
+        assertThrows(RuntimeException.class, () -> documentService.processWordDocuments(task));
+    }
+
+    /**
+     * 多个Excel文件并行读取，结果按文件顺序、文件内按工作表顺序排列
+     */
+    @Test
+    public void testExcelFilesAreExtractedInInputOrder() throws IOException {
+        String first = createWorkbook("report-1.xlsx", "资产负债", "利润");
+        String second = createWorkbook("report-2.xlsx", "现金流量");
+
+        List<List<ExcelProcessor.ElementInfo>> results = documentService.processExcelFiles(List.of(first, second, first));
+
+        assertEquals(3, results.size());
+        assertEquals(List.of("资产负债", "利润"), results.get(0).stream().map(ExcelProcessor.ElementInfo::getSheetName).toList());
+        assertEquals(List.of("现金流量"), results.get(1).stream().map(ExcelProcessor.ElementInfo::getSheetName).toList());
+        assertEquals(results.get(0).size(), results.get(2).size());
+        assertEquals("资产负债项目", results.get(0).get(0).getValue());
+    }
+
+    private String createWorkbook(String name, String... sheetNames) throws IOException {
+        Path path = tempDir.resolve(name);
+        try (XSSFWorkbook workbook = new XSSFWorkbook();
+             FileOutputStream fos = new FileOutputStream(path.toFile())) {
+            for (String sheetName : sheetNames) {
+                workbook.createSheet(sheetName).createRow(0).createCell(0).setCellValue(sheetName + "项目");
+            }
+            workbook.write(fos);
+        }
+        return path.toString();
+    }
+
+    private String createDocument(String name, String... paragraphs) throws IOException {
+        Path path = tempDir.resolve(name);
+        try (XWPFDocument document = new XWPFDocument();
+             FileOutputStream fos = new FileOutputStream(path.toFile())) {
+            for (String paragraph : paragraphs) {
+                document.createParagraph().createRun().setText(paragraph);
+            }
+            document.write(fos);
+        }
+        return path.toString();
+    }
+}
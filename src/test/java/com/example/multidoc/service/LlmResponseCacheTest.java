@@ -0,0 +1,132 @@
+package com.example.multidoc.service;
+
+import com.example.multidoc.model.LlmResponseCacheEntry;
+import com.example.multidoc.repository.LlmResponseCacheRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class LlmResponseCacheTest {
+
+    @Mock(lenient = true)
+    private LlmResponseCacheRepository cacheRepository;
+
+    @InjectMocks
+    private LlmResponseCache responseCache;
+
+    @BeforeEach
+    public void setup() {
+        ReflectionTestUtils.setField(responseCache, "enabled", true);
+        ReflectionTestUtils.setField(responseCache, "memoryMaxEntries", 2);
+        ReflectionTestUtils.setField(responseCache, "ttlHours", 24L);
+        ReflectionTestUtils.setField(responseCache, "maxEntries", 3);
+        when(cacheRepository.findById(anyString())).thenReturn(Optional.empty());
+    }
+
+    @Test
+    public void testBuildKeyDependsOnAllInputs() {
+        String key = responseCache.buildKey("deepseek-chat", 0.2, "系统提示", "用户提示");
+
+        assertEquals(64, key.length());
+        assertEquals(key, responseCache.buildKey("deepseek-chat", 0.2, "系统提示", "用户提示"));
+        assertNotEquals(key, responseCache.buildKey("deepseek-chat", 0.7, "系统提示", "用户提示"));
+        assertNotEquals(key, responseCache.buildKey("other-model", 0.2, "系统提示", "用户提示"));
+        assertNotEquals(key, responseCache.buildKey("deepseek-chat", 0.2, "系统提示用户", "提示"));
+    }
+
+    @Test
+    public void testMemoryHitDoesNotQueryDatabase() {
+        responseCache.put("key1", "deepseek-chat", "{\"rules\":[]}");
+
+        assertEquals(Optional.of("{\"rules\":[]}"), responseCache.get("key1"));
+        verify(cacheRepository, never()).findById(anyString());
+        verify(cacheRepository).save(any(LlmResponseCacheEntry.class));
+        assertEquals(1L, responseCache.getStatistics().get("memoryHits"));
+    }
+
+    @Test
+    public void testDatabaseHitIsPromotedToMemory() {
+        when(cacheRepository.findById("key1"))
+            .thenReturn(Optional.of(new LlmResponseCacheEntry("key1", "deepseek-chat", "响应")));
+
+        assertEquals(Optional.of("响应"), responseCache.get("key1"));
+        assertEquals(Optional.of("响应"), responseCache.get("key1"));
+
+        verify(cacheRepository, times(1)).findById("key1");
+        assertEquals(1L, responseCache.getStatistics().get("databaseHits"));
+        assertEquals(1L, responseCache.getStatistics().get("memoryHits"));
+    }
+
+    @Test
+    public void testExpiredEntryIsTreatedAsMiss() {
+        LlmResponseCacheEntry expired = new LlmResponseCacheEntry("key1", "deepseek-chat", "过期响应");
+        expired.setCreatedTime(LocalDateTime.now().minusHours(25));
+        when(cacheRepository.findById("key1")).thenReturn(Optional.of(expired));
+
+        assertTrue(responseCache.get("key1").isEmpty());
+        verify(cacheRepository).deleteById("key1");
+        assertEquals(1L, responseCache.getStatistics().get("misses"));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEntryIsEvictedFromMemory() {
+        responseCache.put("key1", "deepseek-chat", "响应1");
+        responseCache.put("key2", "deepseek-chat", "响应2");
+        // 访问key1后key2成为最久未使用的条目
+        responseCache.get("key1");
+        responseCache.put("key3", "deepseek-chat", "响应3");
+
+        assertEquals(2L, responseCache.getStatistics().get("memoryEntries"));
+        assertTrue(responseCache.get("key2").isEmpty(), "被淘汰的条目应回退到数据库查询");
+        verify(cacheRepository).findById("key2");
+        assertEquals(Optional.of("响应1"), responseCache.get("key1"));
+    }
+
+    @Test
+    public void testEvictionRemovesLeastRecentlyAccessedEntriesOverLimit() {
+        LocalDateTime cutoff = LocalDateTime.now().minusHours(2);
+        when(cacheRepository.count()).thenReturn(5L);
+        when(cacheRepository.findLastAccessTimes(PageRequest.of(2, 1))).thenReturn(List.of(cutoff));
+
+        responseCache.evictEntries();
+
+        verify(cacheRepository).deleteByCreatedTimeBefore(any(LocalDateTime.class));
+        verify(cacheRepository).deleteByLastAccessTimeBefore(cutoff);
+    }
+
+    @Test
+    public void testEvictionKeepsEntriesWithinLimit() {
+        when(cacheRepository.count()).thenReturn(3L);
+
+        responseCache.evictEntries();
+
+        verify(cacheRepository).deleteByCreatedTimeBefore(any(LocalDateTime.class));
+        verify(cacheRepository, never()).findLastAccessTimes(any());
+        verify(cacheRepository, never()).deleteByLastAccessTimeBefore(any());
+    }
+
+    @Test
+    public void testDisabledCacheAlwaysMisses() {
+        ReflectionTestUtils.setField(responseCache, "enabled", false);
+
+        responseCache.put("key1", "deepseek-chat", "响应");
+
+        assertTrue(responseCache.get("key1").isEmpty());
+        verifyNoInteractions(cacheRepository);
+    }
+}
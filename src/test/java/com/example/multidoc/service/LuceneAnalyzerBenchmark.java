@@ -0,0 +1,72 @@
+package com.example.multidoc.service;
+
+import com.example.multidoc.model.WordSentence;
+import com.example.multidoc.util.LuceneAnalyzerFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分析器查询延迟基准测试
+ * 在样例制度文档 sample.docx 的句子上，用各分析器建索引后执行全部字段查询，精度对比见 LuceneAnalyzerPrecisionTest。
+ * 分析器不可用时（如 smartcn 被排除出classpath）setup 直接报错，避免把退回的 cjk 结果记在 smartcn 名下。
+ * 运行方式：执行 mvn test-compile 后运行本类的 main 方法
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LuceneAnalyzerBenchmark {
+
+    private static final int TOP_K = 3;
+
+    @Param({"standard", "cjk", "smartcn"})
+    public String analyzerType;
+
+    private LuceneQuerySession session;
+
+    @Setup
+    public void openSession() throws Exception {
+        if (!analyzerType.equals(LuceneAnalyzerFactory.resolve(analyzerType))) {
+            throw new IllegalStateException("分析器不可用: " + analyzerType + "，请检查classpath中的 lucene-analysis-smartcn");
+        }
+        List<WordSentence> sentences = LuceneAnalyzerPrecisionTest.loadSampleSentences();
+        session = LuceneAnalyzerPrecisionTest.openSession(analyzerType, sentences);
+    }
+
+    @TearDown
+    public void closeSession() throws Exception {
+        session.close();
+    }
+
+    @Benchmark
+    public void searchAllFields(Blackhole blackhole) throws Exception {
+        for (String query : LuceneAnalyzerPrecisionTest.QUERIES) {
+            blackhole.consume(session.search(query, null, TOP_K));
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(LuceneAnalyzerBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
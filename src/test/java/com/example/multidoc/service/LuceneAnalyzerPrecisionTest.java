@@ -0,0 +1,104 @@
+package com.example.multidoc.service;
+
+import com.example.multidoc.model.WordSentence;
+import com.example.multidoc.util.LuceneAnalyzerFactory;
+import com.example.multidoc.util.SentenceSplitter;
+import com.example.multidoc.util.WordProcessor;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 分析器精度对比
+ * 用 WordProcessor 读取样例制度文档 sample.docx 并拆分句子，分别用单字切分和当前默认的二元切分建索引，
+ * 比较字段查询的 precision@K。句子原文中包含字段名即视为相关。
+ * 查询延迟见 LuceneAnalyzerBenchmark
+ */
+public class LuceneAnalyzerPrecisionTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(LuceneAnalyzerPrecisionTest.class);
+
+    private static final int TOP_K = 3;
+
+    /**
+     * 样例文档中出现的报表字段
+     */
+    static final List<String> QUERIES = List.of(
+        "资产总计", "所有者权益", "不良贷款余额", "拨备覆盖率", "资本充足率", "风险加权资产",
+        "流动性比例", "存款偏离度", "单一客户贷款集中度", "利润总额", "关联交易", "贷款损失准备");
+
+    @Test
+    public void compareAnalyzers() throws Exception {
+        List<WordSentence> sentences = loadSampleSentences();
+        assertFalse(sentences.isEmpty(), "样例文档中没有句子");
+
+        double standardPrecision = precision(LuceneAnalyzerFactory.STANDARD, sentences);
+        double cjkPrecision = precision(LuceneAnalyzerFactory.CJK, sentences);
+
+        assertTrue(cjkPrecision >= standardPrecision,
+                "二元切分的精度不应低于单字切分: cjk=" + cjkPrecision + ", standard=" + standardPrecision);
+    }
+
+    private double precision(String analyzerType, List<WordSentence> sentences) throws Exception {
+        try (LuceneQuerySession session = openSession(analyzerType, sentences)) {
+            int relevantHits = 0;
+            int returned = 0;
+            for (String query : QUERIES) {
+                for (LuceneQuerySession.ScoredSentence hit : session.search(query, null, TOP_K)) {
+                    returned++;
+                    if (hit.getSentence().getContent().contains(query)) {
+                        relevantHits++;
+                    }
+                }
+            }
+            double precision = returned == 0 ? 0 : (double) relevantHits / returned;
+            logger.info("分析器 {}: precision@{}={}", analyzerType, TOP_K, String.format("%.3f", precision));
+            return precision;
+        }
+    }
+
+    /**
+     * 在内存目录中用给定分析器为句子建索引
+     */
+    static LuceneQuerySession openSession(String analyzerType, List<WordSentence> sentences) throws Exception {
+        LuceneService luceneService = new LuceneService();
+        ReflectionTestUtils.setField(luceneService, "analyzerType", analyzerType);
+        ReflectionTestUtils.setField(luceneService, "ramBufferMb", 16.0);
+        return luceneService.openSession(new ByteBuffersDirectory(), sentences);
+    }
+
+    /**
+     * 读取 sample.docx 并按系统的拆分规则拆成句子，句子ID从1开始
+     */
+    static List<WordSentence> loadSampleSentences() throws URISyntaxException {
+        URL resource = LuceneAnalyzerPrecisionTest.class.getClassLoader().getResource("sample.docx");
+        assertNotNull(resource, "找不到资源: sample.docx");
+        WordProcessor wordProcessor = new WordProcessor();
+        WordProcessor.ParsedDocument document = wordProcessor.parseDocument(Paths.get(resource.toURI()).toString());
+        assertTrue(document.isParsed(), "解析样例文档失败");
+
+        List<WordSentence> sentences = new ArrayList<>();
+        SentenceSplitter splitter = wordProcessor.newSentenceSplitter(0, info -> {
+            WordSentence sentence = new WordSentence();
+            sentence.setId((long) sentences.size() + 1);
+            sentence.setContent(info.getContent());
+            sentence.setSourceFile(document.getFileName());
+            sentences.add(sentence);
+        });
+        for (String paragraph : document.getParagraphs()) {
+            splitter.addParagraph(paragraph);
+        }
+        splitter.finish();
+        return sentences;
+    }
+}
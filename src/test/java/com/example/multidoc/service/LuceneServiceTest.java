@@ -0,0 +1,314 @@
+package com.example.multidoc.service;
+
+import com.example.multidoc.model.ExcelField;
+import com.example.multidoc.model.FieldSentenceRelation;
+import com.example.multidoc.model.WordSentence;
+import com.example.multidoc.repository.FieldSentenceRelationBatchRepository;
+import com.example.multidoc.util.JdbcBatchWriter;
+import com.example.multidoc.util.LuceneAnalyzerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.store.FSDirectory;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class LuceneServiceTest {
+
+    @Mock(lenient = true)
+    private FieldSentenceRelationBatchRepository relationBatchRepository;
+
+    @InjectMocks
+    private LuceneService luceneService;
+
+    private final List<List<FieldSentenceRelation>> writtenBatches = new ArrayList<>();
+
+    private final ForkJoinPool searchPool = new ForkJoinPool(4);
+
+    @TempDir
+    Path indexDir;
+
+    @BeforeEach
+    public void setup() {
+        ReflectionTestUtils.setField(luceneService, "relevanceSearchPool", searchPool);
+        ReflectionTestUtils.setField(luceneService, "searchBatchSize", 2);
+        ReflectionTestUtils.setField(luceneService, "analyzerType", "cjk");
+        ReflectionTestUtils.setField(luceneService, "ramBufferMb", 16.0);
+        ReflectionTestUtils.setField(luceneService, "maxResults", 5);
+        ReflectionTestUtils.setField(luceneService, "minResults", 1);
+        ReflectionTestUtils.setField(luceneService, "minRelativeScore", 0.3f);
+        ReflectionTestUtils.setField(luceneService, "minScore", 0.0f);
+        ReflectionTestUtils.setField(luceneService, "indexDir", indexDir.toString());
+        when(relationBatchRepository.openWriter())
+            .thenAnswer(invocation -> new JdbcBatchWriter<FieldSentenceRelation>(2, writtenBatches::add));
+    }
+
+    /**
+     * 相关性计算结果应通过批量写入器分批写入，并在写入前清理字段已有的关联
+     */
+    @Test
+    public void testRelationsAreWrittenInBatches() {
+        List<WordSentence> sentences = List.of(
+            sentence(1L, "资产总计应当等于负债和所有者权益合计"),
+            sentence(2L, "贷款总额包括各项贷款余额"),
+            sentence(3L, "报表应于每月结束后十五日内报送"));
+        List<ExcelField> fields = List.of(field(10L, "资产总计"), field(11L, "贷款总额"));
+
+        long written = luceneService.calculateRelevance("task-1", fields, sentences);
+
+        verify(relationBatchRepository).deleteByFieldIds(List.of(10L, 11L));
+        List<FieldSentenceRelation> relations = writtenBatches.stream().flatMap(List::stream).toList();
+        assertEquals(relations.size(), written);
+        assertTrue(writtenBatches.stream().allMatch(batch -> batch.size() <= 2), "每批不应超过批次大小");
+        assertEquals(1L, relations.stream().filter(r -> r.getFieldId() == 10L).findFirst().orElseThrow().getSentenceId());
+        assertEquals(2L, relations.stream().filter(r -> r.getFieldId() == 11L).findFirst().orElseThrow().getSentenceId());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        searchPool.shutdownNow();
+    }
+
+    /**
+     * 字段被拆分到多个子任务并行检索，每个字段的关联都应完整写入
+     */
+    @Test
+    public void testParallelSearchCoversEveryField() {
+        List<WordSentence> sentences = List.of(
+            sentence(1L, "资产总计应当等于负债和所有者权益合计"),
+            sentence(2L, "贷款总额包括各项贷款余额"));
+        List<ExcelField> fields = new ArrayList<>();
+        for (long id = 1; id <= 50; id++) {
+            fields.add(field(id, id % 2 == 0 ? "资产总计" : "贷款总额"));
+        }
+
+        long written = luceneService.calculateRelevance("task-1", fields, sentences);
+
+        List<FieldSentenceRelation> relations = writtenBatches.stream().flatMap(List::stream).toList();
+        assertEquals(relations.size(), written);
+        for (ExcelField field : fields) {
+            long expectedSentence = field.getId() % 2 == 0 ? 1L : 2L;
+            assertTrue(relations.stream().anyMatch(r -> r.getFieldId().equals(field.getId())
+                    && r.getSentenceId() == expectedSentence), "字段 " + field.getId() + " 缺少关联");
+        }
+    }
+
+    /**
+     * 关联保存归一化后的BM25得分，最相关句子为1.0，弱匹配被截断
+     */
+    @Test
+    public void testScoresAreNormalizedPerField() {
+        List<WordSentence> sentences = List.of(
+            sentence(1L, "资产总计应当等于负债和所有者权益合计"),
+            sentence(2L, "资产负债表按月报送"),
+            sentence(3L, "报表应于每月结束后十五日内报送"));
+
+        luceneService.calculateRelevance("task-1", List.of(field(10L, "资产总计")), sentences);
+
+        List<FieldSentenceRelation> relations = writtenBatches.stream().flatMap(List::stream).toList();
+        assertEquals(1L, relations.get(0).getSentenceId());
+        assertEquals(1.0f, relations.get(0).getRelevanceScore(), 1e-6);
+        assertTrue(relations.stream().allMatch(r -> r.getRelevanceScore() > 0 && r.getRelevanceScore() <= 1.0f));
+        assertTrue(relations.stream().noneMatch(r -> r.getSentenceId() == 3L), "无关句子不应写入");
+    }
+
+    /**
+     * 只有弱匹配的字段按默认配置最多写入 5 条关联；开启绝对下限后按原始得分截断，
+     * 即使放宽数量上限也不写入
+     */
+    @Test
+    public void testWeakOnlyFieldKeepsAtMostOldCap() {
+        List<WordSentence> sentences = new ArrayList<>();
+        for (long i = 1; i <= 12; i++) {
+            sentences.add(sentence(i, "第" + i + "张表格由分行报送"));
+        }
+        sentences.add(sentence(13L, "资本充足率不得低于监管要求"));
+        List<ExcelField> fields = List.of(field(20L, "报送口径说明"), field(21L, "资本充足率"));
+
+        luceneService.calculateRelevance("task-1", fields, sentences);
+        List<FieldSentenceRelation> relations = writtenBatches.stream().flatMap(List::stream).toList();
+        long weak = relations.stream().filter(r -> r.getFieldId() == 20L).count();
+        assertTrue(weak > 0 && weak <= 5, "弱匹配字段写入了 " + weak + " 条关联");
+
+        writtenBatches.clear();
+        ReflectionTestUtils.setField(luceneService, "maxResults", 10);
+        ReflectionTestUtils.setField(luceneService, "minScore", 2.0f);
+        luceneService.calculateRelevance("task-1", fields, sentences);
+        relations = writtenBatches.stream().flatMap(List::stream).toList();
+        assertTrue(relations.stream().noneMatch(r -> r.getFieldId() == 20L), "低于绝对下限的弱匹配不应写入");
+        assertTrue(relations.stream().anyMatch(r -> r.getFieldId() == 21L && r.getSentenceId() == 13L),
+                "强匹配字段应保留关联");
+    }
+
+    /**
+     * 低于最高分比例或绝对下限的结果被截断，但至少保留 minResults 个
+     */
+    @Test
+    public void testAdaptiveCutoff() {
+        List<LuceneQuerySession.ScoredSentence> hits = List.of(
+            scored(1L, 10f), scored(2L, 6f), scored(3L, 2.5f), scored(4L, 1f));
+
+        assertEquals(List.of(1L, 2L), sentenceIds(luceneService.selectRelevant(hits)));
+
+        ReflectionTestUtils.setField(luceneService, "minResults", 3);
+        assertEquals(List.of(1L, 2L, 3L), sentenceIds(luceneService.selectRelevant(hits)));
+
+        ReflectionTestUtils.setField(luceneService, "minScore", 20f);
+        assertTrue(luceneService.selectRelevant(hits).isEmpty());
+    }
+
+    @Test
+    public void testNoFieldsWritesNothing() {
+        long written = luceneService.calculateRelevance("task-1", List.of(), List.of(sentence(1L, "资产总计")));
+
+        assertEquals(0, written);
+        assertTrue(writtenBatches.isEmpty());
+        verify(relationBatchRepository).deleteByFieldIds(anyList());
+    }
+
+    /**
+     * 任务索引持久化在磁盘上，句子未变化时复用，句子变化后重建，删除任务时一并删除
+     */
+    @Test
+    public void testTaskIndexIsReusedUntilSentencesChange() throws Exception {
+        List<WordSentence> sentences = List.of(
+            sentence(1L, "资产总计应当等于负债和所有者权益合计"),
+            sentence(2L, "贷款总额包括各项贷款余额"));
+        Path taskIndex = indexDir.resolve("task-1");
+
+        try (LuceneQuerySession session = luceneService.openTaskSession("task-1", sentences)) {
+            assertEquals(1L, session.search("资产总计", null, 5).get(0).getSentence().getId());
+        }
+        long firstVersion = commitGeneration(taskIndex);
+
+        try (LuceneQuerySession session = luceneService.openTaskSession("task-1", sentences)) {
+            assertEquals(1L, session.search("资产总计", null, 5).get(0).getSentence().getId());
+        }
+        assertEquals(firstVersion, commitGeneration(taskIndex),
+                "句子未变化时不应重建索引");
+
+        // Word文档重新处理后句子ID变化，索引需要重建
+        List<WordSentence> reprocessed = List.of(
+            sentence(3L, "资产总计应当等于负债和所有者权益合计"),
+            sentence(4L, "贷款总额包括各项贷款余额"));
+        try (LuceneQuerySession session = luceneService.openTaskSession("task-1", reprocessed)) {
+            assertEquals(3L, session.search("资产总计", null, 5).get(0).getSentence().getId());
+        }
+
+        luceneService.deleteTaskIndex("task-1");
+        assertFalse(Files.exists(taskIndex));
+    }
+
+    /**
+     * 配置 smartcn 但classpath中没有该分析器时，索引记录实际使用的 cjk，
+     * 之后改为配置 cjk 可直接复用，再配置 standard 则重建
+     */
+    @Test
+    public void testIndexRecordsAnalyzerActuallyUsed() throws Exception {
+        assumeFalse(LuceneAnalyzerFactory.SMARTCN.equals(LuceneAnalyzerFactory.resolve(LuceneAnalyzerFactory.SMARTCN)),
+                "classpath中有 lucene-analysis-smartcn，不会退回cjk");
+        List<WordSentence> sentences = List.of(
+            sentence(1L, "资产总计应当等于负债和所有者权益合计"),
+            sentence(2L, "贷款总额包括各项贷款余额"));
+        Path taskIndex = indexDir.resolve("task-1");
+
+        ReflectionTestUtils.setField(luceneService, "analyzerType", "smartcn");
+        luceneService.openTaskSession("task-1", sentences).close();
+        assertEquals("cjk", commitUserData(taskIndex).get("analyzer"));
+        long generation = commitGeneration(taskIndex);
+
+        ReflectionTestUtils.setField(luceneService, "analyzerType", "cjk");
+        luceneService.openTaskSession("task-1", sentences).close();
+        assertEquals(generation, commitGeneration(taskIndex), "实际分析器相同，不应重建索引");
+
+        ReflectionTestUtils.setField(luceneService, "analyzerType", "standard");
+        luceneService.openTaskSession("task-1", sentences).close();
+        assertEquals("standard", commitUserData(taskIndex).get("analyzer"));
+    }
+
+    /**
+     * 同一个查询会话可被多个线程并发查询，结果与单线程一致
+     */
+    @Test
+    public void testSessionIsSharedAcrossThreads() throws Exception {
+        List<WordSentence> sentences = List.of(
+            sentence(1L, "资产总计应当等于负债和所有者权益合计"),
+            sentence(2L, "贷款总额包括各项贷款余额"));
+
+        try (LuceneQuerySession session = luceneService.openTaskSession("task-1", sentences)) {
+            List<Long> expected = sentenceIds(session.search("资产总计", null, 5));
+            assertEquals(1L, expected.get(0));
+
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            try {
+                List<Future<List<Long>>> futures = new ArrayList<>();
+                for (int i = 0; i < 16; i++) {
+                    futures.add(executor.submit(() -> sentenceIds(session.search("资产总计", null, 5))));
+                }
+                for (Future<List<Long>> future : futures) {
+                    assertEquals(expected, future.get());
+                }
+            } finally {
+                executor.shutdown();
+            }
+        }
+    }
+
+    private List<Long> sentenceIds(List<LuceneQuerySession.ScoredSentence> hits) {
+        return hits.stream().map(hit -> hit.getSentence().getId()).toList();
+    }
+
+    private LuceneQuerySession.ScoredSentence scored(Long id, float score) {
+        return new LuceneQuerySession.ScoredSentence(sentence(id, "句子" + id), score);
+    }
+
+    private long commitGeneration(Path path) throws Exception {
+        try (FSDirectory directory = FSDirectory.open(path)) {
+            return SegmentInfos.readLatestCommit(directory).getGeneration();
+        }
+    }
+
+    private Map<String, String> commitUserData(Path path) throws Exception {
+        try (FSDirectory directory = FSDirectory.open(path)) {
+            return SegmentInfos.readLatestCommit(directory).getUserData();
+        }
+    }
+
+    private WordSentence sentence(Long id, String content) {
+        WordSentence sentence = new WordSentence();
+        sentence.setId(id);
+        sentence.setContent(content);
+        sentence.setSourceFile("制度.docx");
+        return sentence;
+    }
+
+    private ExcelField field(Long id, String name) {
+        ExcelField field = new ExcelField();
+        field.setId(id);
+        field.setFieldName(name);
+        field.setDescription(name);
+        field.setFieldType("STRING");
+        return field;
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.multidoc.service;
+
+import com.example.multidoc.model.AnalysisTask;
+import com.example.multidoc.model.TaskLog;
+import com.example.multidoc.repository.TaskLogBatchRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class TaskLogWriterTest {
+
+    @Mock(lenient = true)
+    private TaskLogBatchRepository taskLogBatchRepository;
+
+    @Mock(lenient = true)
+    private TaskProgressPublisher taskProgressPublisher;
+
+    @InjectMocks
+    private TaskLogWriter taskLogWriter;
+
+    private final AnalysisTask task = new AnalysisTask();
+
+    private final List<List<TaskLog>> savedBatches = Collections.synchronizedList(new ArrayList<>());
+
+    @BeforeEach
+    public void setup() {
+        task.setId("task-1");
+        ReflectionTestUtils.setField(taskLogWriter, "bufferSize", 1000);
+        ReflectionTestUtils.setField(taskLogWriter, "batchSize", 50);
+        ReflectionTestUtils.setField(taskLogWriter, "flushIntervalMs", 1000L);
+        ReflectionTestUtils.setField(taskLogWriter, "offerTimeoutMs", 2000L);
+        doAnswer(invocation -> savedBatches.add(new ArrayList<>(invocation.<List<TaskLog>>getArgument(0))))
+            .when(taskLogBatchRepository).insertBatch(anyList());
+    }
+
+    @AfterEach
+    public void teardown() {
+        taskLogWriter.stop();
+    }
+
+    /**
+     * 多个线程并发写入的日志按批落库，flush 返回时全部写入且每个线程内保持顺序
+     */
+    @Test
+    public void testFlushWritesAllLogsInBatches() throws Exception {
+        taskLogWriter.start();
+        ExecutorService producers = Executors.newFixedThreadPool(4);
+        for (int p = 0; p < 4; p++) {
+            String producer = "p" + p;
+            producers.submit(() -> {
+                for (int i = 0; i < 100; i++) {
+                    taskLogWriter.append(new TaskLog(task, producer + ":" + i, "INFO"));
+                }
+            });
+        }
+        producers.shutdown();
+        assertTrue(producers.awaitTermination(10, TimeUnit.SECONDS));
+
+        taskLogWriter.flush();
+
+        List<TaskLog> saved = savedBatches.stream().flatMap(List::stream).toList();
+        assertEquals(400, saved.size());
+        assertTrue(savedBatches.stream().allMatch(batch -> batch.size() <= 50));
+        assertTrue(savedBatches.size() < 400);
+        for (int p = 0; p < 4; p++) {
+            String prefix = "p" + p + ":";
+            List<String> messages = saved.stream().map(TaskLog::getMessage).filter(m -> m.startsWith(prefix)).toList();
+            for (int i = 0; i < messages.size(); i++) {
+                assertEquals(prefix + i, messages.get(i));
+            }
+        }
+        assertEquals(0, taskLogWriter.getDroppedCount());
+        // 每批写入后推送一次
+        verify(taskProgressPublisher, times(savedBatches.size())).publishLogs(anyList());
+    }
+
+    /**
+     * 未攒够一批时，到刷新间隔也会写入
+     */
+    @Test
+    public void testPartialBatchWrittenAfterInterval() throws Exception {
+        ReflectionTestUtils.setField(taskLogWriter, "flushIntervalMs", 50L);
+        CountDownLatch written = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            savedBatches.add(new ArrayList<>(invocation.<List<TaskLog>>getArgument(0)));
+            written.countDown();
+            return null;
+        }).when(taskLogBatchRepository).insertBatch(anyList());
+        taskLogWriter.start();
+
+        taskLogWriter.append(new TaskLog(task, "开始规则提取", "INFO"));
+
+        assertTrue(written.await(2, TimeUnit.SECONDS));
+        assertEquals(1, savedBatches.get(0).size());
+    }
+
+    /**
+     * 队列已满时丢弃 INFO 日志，ERROR 日志等待写入线程腾出空间
+     */
+    @Test
+    public void testBackPressureKeepsErrors() throws Exception {
+        ReflectionTestUtils.setField(taskLogWriter, "bufferSize", 2);
+        ReflectionTestUtils.setField(taskLogWriter, "batchSize", 1);
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            writing.countDown();
+            release.await();
+            return savedBatches.add(new ArrayList<>(invocation.<List<TaskLog>>getArgument(0)));
+        }).when(taskLogBatchRepository).insertBatch(anyList());
+        taskLogWriter.start();
+
+        // 写入线程卡在第一批，随后两条占满队列
+        taskLogWriter.append(new TaskLog(task, "info-0", "INFO"));
+        assertTrue(writing.await(2, TimeUnit.SECONDS));
+        taskLogWriter.append(new TaskLog(task, "info-1", "INFO"));
+        taskLogWriter.append(new TaskLog(task, "info-2", "INFO"));
+
+        taskLogWriter.append(new TaskLog(task, "info-dropped", "INFO"));
+        assertEquals(1, taskLogWriter.getDroppedCount());
+
+        Thread errorProducer = new Thread(() -> taskLogWriter.append(new TaskLog(task, "error-kept", "ERROR")));
+        errorProducer.start();
+        Thread.sleep(100);
+        release.countDown();
+        errorProducer.join(5000);
+
+        taskLogWriter.flush();
+
+        List<String> messages = savedBatches.stream().flatMap(List::stream).map(TaskLog::getMessage).toList();
+        assertEquals(List.of("info-0", "info-1", "info-2", "error-kept"), messages);
+        assertEquals(1, taskLogWriter.getDroppedCount());
+    }
+
+    /**
+     * 写入失败不影响后续日志
+     */
+    @Test
+    public void testInsertFailureDoesNotStopWriter() {
+        doThrow(new RuntimeException("数据库不可用"))
+            .doAnswer(invocation -> savedBatches.add(new ArrayList<>(invocation.<List<TaskLog>>getArgument(0))))
+            .when(taskLogBatchRepository).insertBatch(anyList());
+        taskLogWriter.start();
+
+        taskLogWriter.append(new TaskLog(task, "lost", "INFO"));
+        taskLogWriter.flush();
+        taskLogWriter.append(new TaskLog(task, "kept", "INFO"));
+        taskLogWriter.flush();
+
+        assertEquals(1, savedBatches.size());
+        assertEquals("kept", savedBatches.get(0).get(0).getMessage());
+    }
+}
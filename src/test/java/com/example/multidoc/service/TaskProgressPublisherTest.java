@@ -0,0 +1,89 @@
+package com.example.multidoc.service;
+
+import com.example.multidoc.model.AnalysisTask;
+import com.example.multidoc.model.TaskLog;
+import com.example.multidoc.model.TaskLogEntry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class TaskProgressPublisherTest {
+
+    @Mock(lenient = true)
+    private SimpMessagingTemplate messagingTemplate;
+
+    @InjectMocks
+    private TaskProgressPublisher progressPublisher;
+
+    /**
+     * 一批日志按任务拆成多条消息，各自带上最后一条日志的ID作为游标
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testLogsGroupedByTaskWithCursor() {
+        AnalysisTask first = task("task-1");
+        AnalysisTask second = task("task-2");
+
+        progressPublisher.publishLogs(List.of(
+            log(first, 1L, "开始分析"), log(second, 2L, "开始分析"), log(first, 3L, "字段提取完成")));
+
+        ArgumentCaptor<Map<String, Object>> payload = ArgumentCaptor.forClass(Map.class);
+        verify(messagingTemplate).convertAndSend(eq("/topic/task/task-1"), payload.capture());
+        assertEquals("logs", payload.getValue().get("type"));
+        assertEquals(3L, payload.getValue().get("cursor"));
+        List<TaskLogEntry> logs = (List<TaskLogEntry>) payload.getValue().get("logs");
+        assertEquals(List.of("开始分析", "字段提取完成"), logs.stream().map(TaskLogEntry::getMessage).toList());
+        assertEquals(List.of(1L, 3L), logs.stream().map(TaskLogEntry::getId).toList());
+
+        verify(messagingTemplate).convertAndSend(eq("/topic/task/task-2"), payload.capture());
+        assertEquals(2L, payload.getValue().get("cursor"));
+    }
+
+    /**
+     * 推送失败只记录日志，不影响任务执行
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testPublishFailureIsIgnored() {
+        doThrow(new MessageDeliveryException("broker unavailable"))
+            .when(messagingTemplate).convertAndSend(anyString(), any(Object.class));
+        AnalysisTask task = task("task-1");
+        task.setStatus(AnalysisTask.TaskStatus.RUNNING);
+        task.setProgress(40);
+
+        assertDoesNotThrow(() -> progressPublisher.publishProgress(task, "rule_extraction", "规则提取中"));
+
+        ArgumentCaptor<Map<String, Object>> payload = ArgumentCaptor.forClass(Map.class);
+        verify(messagingTemplate).convertAndSend(eq("/topic/task/task-1"), payload.capture());
+        assertEquals("progress", payload.getValue().get("type"));
+        assertEquals("RUNNING", payload.getValue().get("status"));
+        assertEquals(40, payload.getValue().get("overallProgress"));
+    }
+
+    private AnalysisTask task(String id) {
+        AnalysisTask task = new AnalysisTask();
+        task.setId(id);
+        return task;
+    }
+
+    private TaskLog log(AnalysisTask task, long id, String message) {
+        TaskLog log = new TaskLog(task, message, "INFO");
+        log.setId(id);
+        return log;
+    }
+}
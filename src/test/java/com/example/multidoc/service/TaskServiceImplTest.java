@@ -0,0 +1,57 @@
+package com.example.multidoc.service;
+
+import com.example.multidoc.model.TaskLogEntry;
+import com.example.multidoc.repository.TaskLogRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class TaskServiceImplTest {
+
+    @Mock(lenient = true)
+    private TaskLogRepository logRepository;
+
+    @InjectMocks
+    private TaskServiceImpl taskService;
+
+    /**
+     * 游标分页把游标和条数原样交给查询
+     */
+    @Test
+    public void testLogsAfterCursorUseKeysetPage() {
+        when(logRepository.findEntriesAfter("task-1", 42L, PageRequest.of(0, 100)))
+            .thenReturn(List.of(entry(43L), entry(44L)));
+
+        List<TaskLogEntry> logs = taskService.getTaskLogsAfter("task-1", 42L, 100);
+
+        assertEquals(List.of(43L, 44L), logs.stream().map(TaskLogEntry::getId).toList());
+        verify(logRepository).findEntriesAfter("task-1", 42L, PageRequest.of(0, 100));
+    }
+
+    /**
+     * 最近的日志按ID倒序查出，返回前恢复为写入顺序
+     */
+    @Test
+    public void testLatestLogsReturnedInWriteOrder() {
+        when(logRepository.findLatestEntries("task-1", PageRequest.of(0, 3)))
+            .thenReturn(List.of(entry(10L), entry(9L), entry(8L)));
+
+        List<TaskLogEntry> logs = taskService.getLatestTaskLogs("task-1", 3);
+
+        assertEquals(List.of(8L, 9L, 10L), logs.stream().map(TaskLogEntry::getId).toList());
+    }
+
+    private TaskLogEntry entry(long id) {
+        return new TaskLogEntry(id, LocalDateTime.now(), "INFO", "log-" + id);
+    }
+}
@@ -1,15 +1,19 @@
 package com.example.multidoc.util;
 
 import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.ss.util.CellRangeAddress;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -97,6 +101,102 @@ class ExcelProcessorTest {
         assertEquals("30.0", ageData.getValue());
     }
 
+    @Test
+    void testStreamingExtractionMatchesWorkbookExtraction() throws IOException {
+        String path = tempDir.resolve("report.xlsx").toString();
+        createChineseReportFile(path);
+
+        ReflectionTestUtils.setField(excelProcessor, "streamingThresholdMb", 1024L);
+        List<ExcelProcessor.ElementInfo> fromWorkbook = excelProcessor.extractFields(path);
+        ReflectionTestUtils.setField(excelProcessor, "streamingThresholdMb", 0L);
+        List<ExcelProcessor.ElementInfo> streamed = excelProcessor.extractFields(path);
+
+        assertEquals(6, fromWorkbook.size());
+        assertEquals(fromWorkbook.size(), streamed.size());
+        for (int i = 0; i < fromWorkbook.size(); i++) {
+            assertEquals(fromWorkbook.get(i).toString(), streamed.get(i).toString());
+        }
+
+        ExcelProcessor.ElementInfo title = streamed.get(0);
+        assertEquals("资产负债表", title.getValue());
+        assertTrue(title.isMerged());
+        assertEquals(1, title.getMergedRowSpan());
+        assertEquals(3, title.getMergedColSpan());
+        assertTrue(title.isFontBold());
+        assertEquals(16, title.getFontSize());
+        assertEquals("按法人口径填报", title.getComment());
+
+        ExcelProcessor.ElementInfo formula = streamed.get(streamed.size() - 1);
+        assertEquals("第二张表", formula.getSheetName());
+        assertEquals("\"合计\"&\"金额\"", formula.getFormula());
+    }
+
+    @Test
+    void testParallelSheetExtractionKeepsSheetOrder() throws IOException {
+        String path = tempDir.resolve("report.xlsx").toString();
+        createChineseReportFile(path);
+        ReflectionTestUtils.setField(excelProcessor, "streamingThresholdMb", 0L);
+        List<ExcelProcessor.ElementInfo> sequential = excelProcessor.extractFields(path);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<ExcelProcessor.ElementInfo> parallel = excelProcessor.extractFieldsAsync(path, executor).join();
+            assertEquals(sequential.size(), parallel.size());
+            for (int i = 0; i < sequential.size(); i++) {
+                assertEquals(sequential.get(i).toString(), parallel.get(i).toString());
+            }
+            assertTrue(excelProcessor.extractFieldsAsync(tempDir.resolve("missing.xlsx").toString(), executor)
+                    .join().isEmpty());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testStreamingExtractionOfMissingFile() {
+        ReflectionTestUtils.setField(excelProcessor, "streamingThresholdMb", 0L);
+        assertTrue(excelProcessor.extractFields(tempDir.resolve("missing.xlsx").toString()).isEmpty());
+    }
+
+    private void createChineseReportFile(String filePath) throws IOException {
+        try (Workbook workbook = new XSSFWorkbook()) {
+            Font titleFont = workbook.createFont();
+            titleFont.setBold(true);
+            titleFont.setFontHeightInPoints((short) 16);
+            CellStyle titleStyle = workbook.createCellStyle();
+            titleStyle.setFont(titleFont);
+
+            Sheet sheet = workbook.createSheet("资产负债");
+            Cell title = sheet.createRow(0).createCell(0);
+            title.setCellValue("资产负债表");
+            title.setCellStyle(titleStyle);
+            sheet.addMergedRegion(new CellRangeAddress(0, 0, 0, 2));
+
+            Drawing<?> drawing = sheet.createDrawingPatriarch();
+            ClientAnchor anchor = workbook.getCreationHelper().createClientAnchor();
+            Comment comment = drawing.createCellComment(anchor);
+            comment.setString(workbook.getCreationHelper().createRichTextString("按法人口径填报"));
+            title.setCellComment(comment);
+
+            Row header = sheet.createRow(1);
+            header.createCell(0).setCellValue("项目名称");
+            header.createCell(1).setCellValue("期末余额");
+            header.createCell(2).setCellValue("Amount");
+            Row data = sheet.createRow(3);
+            data.createCell(0).setCellValue("货币资金|现金");
+            data.createCell(1).setCellValue(100);
+
+            Sheet second = workbook.createSheet("第二张表");
+            second.createRow(0).createCell(1).setCellValue("填报说明");
+            second.createRow(2).createCell(0).setCellFormula("\"合计\"&\"金额\"");
+            workbook.getCreationHelper().createFormulaEvaluator().evaluateAll();
+
+            try (FileOutputStream fileOut = new FileOutputStream(filePath)) {
+                workbook.write(fileOut);
+            }
+        }
+    }
+
     private void createTestExcelFile(String filePath) throws IOException {
         try (Workbook workbook = new XSSFWorkbook()) {
             Sheet sheet = workbook.createSheet("Test Sheet");
@@ -0,0 +1,52 @@
+package com.example.multidoc.util;
+
+import com.example.multidoc.model.ExcelField;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FieldCanonicalizerTest {
+
+    @Test
+    void testNormalize() {
+        assertEquals("单位:万元", FieldCanonicalizer.normalize(" 单位：万元 "));
+        assertEquals("单位:万元", FieldCanonicalizer.normalize("单位:　万元"));
+        assertEquals("a类资产", FieldCanonicalizer.normalize("Ａ类 资产"));
+        assertEquals("", FieldCanonicalizer.normalize(null));
+    }
+
+    @Test
+    void testDuplicatesAreSentOnceAndFannedOut() {
+        FieldCanonicalizer canonicalizer = new FieldCanonicalizer();
+        canonicalizer.add(field("资产负债表", "单位：万元"));
+        canonicalizer.add(field("资产负债表", "资产总计"));
+        canonicalizer.add(field("利润表", "单位:万元"));
+        canonicalizer.add(field("利润表", "单位： 万元"));
+        canonicalizer.add(field("现金流量表", "单位：万元"));
+        canonicalizer.add(field("现金流量表", "  "));
+
+        assertEquals(6, canonicalizer.getFieldCount());
+        assertEquals(2, canonicalizer.getUniqueCount());
+
+        List<ExcelField> uniqueFields = canonicalizer.getUniqueFields();
+        assertEquals("单位：万元", uniqueFields.get(0).getFieldName());
+        assertEquals("资产负债表", uniqueFields.get(0).getTableName());
+        assertEquals("资产总计", uniqueFields.get(1).getFieldName());
+
+        // 大模型返回的字段名写法不同也能对应到所有表中的出现位置，同一表中的重复只保留一个
+        List<ExcelField> occurrences = canonicalizer.getOccurrences("单位:万元");
+        assertEquals(List.of("资产负债表", "利润表", "现金流量表"),
+                occurrences.stream().map(ExcelField::getTableName).toList());
+        assertTrue(canonicalizer.getOccurrences("负债合计").isEmpty());
+    }
+
+    private ExcelField field(String tableName, String fieldName) {
+        ExcelField field = new ExcelField();
+        field.setTableName(tableName);
+        field.setFieldName(fieldName);
+        field.setDescription(fieldName);
+        return field;
+    }
+}
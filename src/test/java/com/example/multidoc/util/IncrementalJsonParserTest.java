@@ -0,0 +1,46 @@
+package com.example.multidoc.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IncrementalJsonParserTest {
+
+    @Test
+    void testCompleteJsonAcrossChunks() throws IOException {
+        IncrementalJsonParser parser = new IncrementalJsonParser();
+        for (String chunk : new String[] {"{\"rules\": [", "{\"type\": \"显式", "\", \"content\": \"资产", "总计>0\"}", "]}"}) {
+            assertFalse(parser.isComplete());
+            parser.feed(chunk);
+        }
+        assertTrue(parser.isStarted());
+        assertTrue(parser.isComplete());
+    }
+
+    @Test
+    void testIgnoresMarkdownFenceAroundJson() throws IOException {
+        IncrementalJsonParser parser = new IncrementalJsonParser();
+        parser.feed("```json\n");
+        assertFalse(parser.isStarted());
+        parser.feed("{\"categories\": []}");
+        parser.feed("\n```");
+        assertTrue(parser.isComplete());
+    }
+
+    @Test
+    void testMalformedJsonFailsOnOffendingChunk() throws IOException {
+        IncrementalJsonParser parser = new IncrementalJsonParser();
+        parser.feed("{\"rules\": [");
+        assertThrows(IOException.class, () -> parser.feed("}"));
+    }
+
+    @Test
+    void testTruncatedJsonIsNotComplete() throws IOException {
+        IncrementalJsonParser parser = new IncrementalJsonParser();
+        parser.feed("{\"rules\": [{\"type\": \"显式\"");
+        assertTrue(parser.isStarted());
+        assertFalse(parser.isComplete());
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.multidoc.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JdbcBatchWriterTest {
+
+    @Test
+    void testFlushesFullBatchesAndRemainderOnClose() {
+        List<Integer> batchSizes = new ArrayList<>();
+        JdbcBatchWriter<Integer> writer = new JdbcBatchWriter<>(500, batch -> batchSizes.add(batch.size()));
+        try (writer) {
+            for (int i = 0; i < 1200; i++) {
+                writer.add(i);
+            }
+            assertEquals(List.of(500, 500), batchSizes, "未满一批的记录应留在缓冲区");
+        }
+
+        assertEquals(List.of(500, 500, 200), batchSizes);
+        assertEquals(1200, writer.getWrittenCount());
+    }
+
+    @Test
+    void testEmptyWriterWritesNothing() {
+        List<List<String>> batches = new ArrayList<>();
+        try (JdbcBatchWriter<String> writer = new JdbcBatchWriter<>(10, batches::add)) {
+            writer.flush();
+        }
+        assertTrue(batches.isEmpty());
+    }
+
+    @Test
+    void testInvalidBatchSize() {
+        assertThrows(IllegalArgumentException.class, () -> new JdbcBatchWriter<String>(0, batch -> { }));
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.multidoc.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResourceLimiterTest {
+
+    @Test
+    void testConcurrencyNeverExceedsLimit() throws InterruptedException {
+        ResourceLimiter limiter = new ResourceLimiter("db", 2);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(8);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            for (int i = 0; i < 8; i++) {
+                executor.execute(() -> {
+                    try {
+                        limiter.run(() -> {
+                            int current = running.incrementAndGet();
+                            maxRunning.accumulateAndGet(current, Math::max);
+                            Thread.sleep(20);
+                            running.decrementAndGet();
+                        });
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    done.countDown();
+                });
+            }
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertTrue(maxRunning.get() <= 2, "同时执行的操作数不应超过上限，实际: " + maxRunning.get());
+        assertEquals(2, limiter.availablePermits());
+    }
+
+    @Test
+    void testPermitReleasedWhenOperationFails() {
+        ResourceLimiter limiter = new ResourceLimiter("disk", 1);
+
+        assertThrows(IOException.class, () -> limiter.call(() -> {
+            throw new IOException("读取失败");
+        }));
+        assertEquals(1, limiter.availablePermits());
+        assertEquals("结果", limiter.call(() -> "结果"));
+    }
+
+    @Test
+    void testInvalidConfiguration() {
+        assertThrows(IllegalArgumentException.class, () -> new ResourceLimiter("llm", 0));
+    }
+}
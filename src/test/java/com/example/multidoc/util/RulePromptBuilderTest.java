@@ -0,0 +1,129 @@
+package com.example.multidoc.util;
+
+import com.example.multidoc.model.ExcelField;
+import com.example.multidoc.model.FieldSentenceRelation;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RulePromptBuilderTest {
+
+    @Test
+    void testSmallCategoryFitsInOnePrompt() {
+        List<ExcelField> fields = List.of(field(1L, "资产总计"), field(2L, "负债合计"));
+        Map<Long, List<FieldSentenceRelation>> relations = new HashMap<>();
+        relations.put(1L, List.of(relation(1L, 10L, "资产总计应当等于负债与所有者权益合计", 1.0f, "制度.docx")));
+        relations.put(2L, List.of(relation(2L, 10L, "资产总计应当等于负债与所有者权益合计", 0.8f, "制度.docx")));
+
+        List<RulePromptBuilder.RulePrompt> prompts = new RulePromptBuilder(10000)
+                .build("资产负债", fields, relations, Map.of("制度.docx", "适用于全部法人机构"));
+
+        assertEquals(1, prompts.size());
+        RulePromptBuilder.RulePrompt prompt = prompts.get(0);
+        assertEquals(2, prompt.getFields().size());
+        assertEquals(1, prompt.getIncludedSentences(), "两个字段共享的句子只应出现一次");
+        assertTrue(prompt.getContent().contains("适用于全部法人机构"));
+        assertTrue(prompt.getContent().contains("字段名: 负债合计"));
+    }
+
+    @Test
+    void testLowScoreSentencesAreDroppedFirst() {
+        String strong = "贷款损失准备与不良贷款余额之比为拨备覆盖率";
+        String weak = "报表应于每月结束后十五日内报送，逾期报送的应当说明原因并补报";
+        List<FieldSentenceRelation> relations = List.of(
+                relation(1L, 10L, weak, 0.3f, "制度.docx"),
+                relation(1L, 11L, strong, 1.0f, "制度.docx"));
+
+        int budget = TokenBucketRateLimiter.estimateTokens("分类: 拨备\n\n字段列表:\n")
+                + TokenBucketRateLimiter.estimateTokens("分类 '拨备' 包含以下字段：\n")
+                + TokenBucketRateLimiter.estimateTokens("- 字段名: 拨备覆盖率\n  表名: 监管指标表\n  描述: 拨备覆盖率\n  ---\n")
+                + TokenBucketRateLimiter.estimateTokens("\n相关文本:\n")
+                + TokenBucketRateLimiter.estimateTokens(strong + "\n")
+                + TokenBucketRateLimiter.estimateTokens("\n\n## 相关文档的报送范围信息\n\n");
+
+        List<RulePromptBuilder.RulePrompt> prompts = new RulePromptBuilder(budget)
+                .build("拨备", List.of(field(1L, "拨备覆盖率")), Map.of(1L, relations), Map.of());
+
+        assertEquals(1, prompts.size());
+        assertTrue(prompts.get(0).getContent().contains(strong));
+        assertFalse(prompts.get(0).getContent().contains(weak));
+        assertEquals(1, prompts.get(0).getOmittedSentences());
+    }
+
+    @Test
+    void testOversizedCategoryIsSplitByField() {
+        Map<Long, List<FieldSentenceRelation>> relations = new HashMap<>();
+        List<ExcelField> fields = List.of(field(1L, "字段一"), field(2L, "字段二"), field(3L, "字段三"));
+        for (ExcelField field : fields) {
+            relations.put(field.getId(), List.of(relation(field.getId(), field.getId() * 100,
+                    field.getFieldName() + "的填报要求：" + "按照统一口径逐项填写，不得遗漏。".repeat(5), 1.0f, "制度.docx")));
+        }
+
+        List<RulePromptBuilder.RulePrompt> prompts = new RulePromptBuilder(150)
+                .build("测试", fields, relations, Map.of());
+
+        assertTrue(prompts.size() > 1, "超出预算的分类应拆分为多个子请求");
+        assertEquals(3, prompts.stream().mapToInt(p -> p.getFields().size()).sum(), "每个字段都应出现在某个子请求中");
+        for (RulePromptBuilder.RulePrompt prompt : prompts) {
+            for (ExcelField field : prompt.getFields()) {
+                assertTrue(prompt.getContent().contains(field.getFieldName() + "的填报要求"));
+            }
+        }
+    }
+
+    @Test
+    void testPromptWrapperCountsAgainstBudget() {
+        Map<Long, List<FieldSentenceRelation>> relations = new HashMap<>();
+        List<ExcelField> fields = List.of(field(1L, "资本充足率"), field(2L, "核心一级资本"));
+        for (ExcelField field : fields) {
+            List<FieldSentenceRelation> fieldRelations = new ArrayList<>();
+            for (long i = 0; i < 20; i++) {
+                fieldRelations.add(relation(field.getId(), field.getId() * 100 + i,
+                        field.getFieldName() + "第" + i + "项口径说明", 1.0f - i * 0.01f, "制度" + i % 3 + ".docx"));
+            }
+            relations.put(field.getId(), fieldRelations);
+        }
+        Map<String, String> scopeMap = Map.of(
+                "制度0.docx", "适用于全部法人机构", "制度1.docx", "适用于农村金融机构", "制度2.docx", "适用于外资银行");
+
+        for (int budget : List.of(120, 200, 300)) {
+            List<RulePromptBuilder.RulePrompt> prompts = new RulePromptBuilder(budget)
+                    .build("资本管理", fields, relations, scopeMap);
+
+            for (RulePromptBuilder.RulePrompt prompt : prompts) {
+                assertTrue(prompt.getOmittedSentences() > 0, "预算应被句子填满");
+                assertTrue(prompt.getEstimatedTokens() <= budget,
+                        "完整提示 " + prompt.getEstimatedTokens() + " tokens 超出预算 " + budget);
+            }
+        }
+    }
+
+    @Test
+    void testInvalidBudget() {
+        assertThrows(IllegalArgumentException.class, () -> new RulePromptBuilder(0));
+    }
+
+    private ExcelField field(Long id, String name) {
+        ExcelField field = new ExcelField();
+        field.setId(id);
+        field.setFieldName(name);
+        field.setTableName("监管指标表");
+        field.setDescription(name);
+        return field;
+    }
+
+    private FieldSentenceRelation relation(Long fieldId, Long sentenceId, String content, float score, String sourceFile) {
+        FieldSentenceRelation relation = new FieldSentenceRelation();
+        relation.setFieldId(fieldId);
+        relation.setSentenceId(sentenceId);
+        relation.setSentenceContent(content);
+        relation.setRelevanceScore(score);
+        relation.setSourceFile(sourceFile);
+        return relation;
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.multidoc.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 句子拆分基准测试
+ * 分别对 1MB、10MB、50MB（UTF-8）的制度文本做拆分，耗时应随文本大小线性增长。
+ * 运行方式：执行 mvn test-compile 后运行本类的 main 方法
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class SentenceSplitterBenchmark {
+
+    private static final int BYTES_PER_MB = 1024 * 1024;
+
+    private static final String[] SENTENCES = {
+        "资产总计应当等于负债合计与所有者权益合计之和。",
+        "各项贷款余额按借款人所属行业分类填报。",
+        "不良贷款包括次级类、可疑类和损失类贷款！",
+        "资本充足率为资本净额与风险加权资产的比率，核心一级资本充足率不得低于百分之七点五。",
+        "报表应于每月结束后十五日内报送？",
+        "Loans shall be reported by industry. ",
+        "单一客户贷款集中度不得超过资本净额的百分之十。",
+    };
+
+    @Param({"1", "10", "50"})
+    public int sizeMb;
+
+    private List<String> paragraphs;
+
+    @Setup
+    public void generateDocument() {
+        paragraphs = new ArrayList<>();
+        long targetBytes = (long) sizeMb * BYTES_PER_MB;
+        long bytes = 0;
+        int i = 0;
+        while (bytes < targetBytes) {
+            // 每段由3到7个句子组成
+            StringBuilder paragraph = new StringBuilder();
+            int count = 3 + i % 5;
+            for (int j = 0; j < count; j++) {
+                paragraph.append(SENTENCES[(i + j) % SENTENCES.length]);
+            }
+            String text = paragraph.toString();
+            paragraphs.add(text);
+            bytes += text.getBytes(StandardCharsets.UTF_8).length;
+            i++;
+        }
+    }
+
+    @Benchmark
+    public void split(Blackhole blackhole) {
+        SentenceSplitter splitter = new SentenceSplitter(50, 2000, 200, 0, blackhole::consume);
+        for (String paragraph : paragraphs) {
+            splitter.addParagraph(paragraph);
+        }
+        splitter.finish();
+        blackhole.consume(splitter.getNextSentenceIndex());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(SentenceSplitterBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
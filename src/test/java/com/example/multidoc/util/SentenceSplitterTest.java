@@ -0,0 +1,130 @@
+package com.example.multidoc.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SentenceSplitterTest {
+
+    @Test
+    void testPositionsPointIntoDocumentText() {
+        List<WordProcessor.WordSentenceInfo> sentences = new ArrayList<>();
+        SentenceSplitter splitter = new SentenceSplitter(0, 1000, 10, 0, sentences::add);
+        String first = "第一段第一句。第一段第二句！";
+        String second = "  第二段只有一句?  ";
+        splitter.addParagraph(first);
+        splitter.addParagraph("   ");
+        splitter.addParagraph(second);
+        splitter.finish();
+
+        String documentText = first + "\n\n" + second.trim() + "\n\n";
+        assertEquals(3, sentences.size());
+        for (int i = 0; i < sentences.size(); i++) {
+            WordProcessor.WordSentenceInfo sentence = sentences.get(i);
+            assertEquals(i, sentence.getSentenceIndex());
+            assertEquals(sentence.getContent(),
+                    documentText.substring(sentence.getStartPosition(), sentence.getEndPosition() + 1));
+        }
+        assertEquals("第二段只有一句?", sentences.get(2).getContent());
+    }
+
+    @Test
+    void testShortSentencesAreMergedAcrossParagraphs() {
+        List<WordProcessor.WordSentenceInfo> sentences = new ArrayList<>();
+        SentenceSplitter splitter = new SentenceSplitter(8, 1000, 10, 5, sentences::add);
+        splitter.addParagraph("短句。");
+        splitter.addParagraph("另一个短句。这一句已经足够长了吧。");
+        splitter.finish();
+
+        assertEquals(2, sentences.size());
+        assertEquals("短句。 另一个短句。", sentences.get(0).getContent());
+        assertEquals(0, sentences.get(0).getStartPosition());
+        assertEquals(5, sentences.get(0).getSentenceIndex());
+        assertEquals("这一句已经足够长了吧。", sentences.get(1).getContent());
+        assertEquals(7, splitter.getNextSentenceIndex());
+    }
+
+    @Test
+    void testContextIsLimitedToWindow() {
+        List<WordProcessor.WordSentenceInfo> sentences = new ArrayList<>();
+        SentenceSplitter splitter = new SentenceSplitter(0, 1000, 3, 0, sentences::add);
+        splitter.addParagraph("甲甲甲甲。乙乙乙乙。丙丙丙丙。");
+        splitter.finish();
+
+        assertEquals(3, sentences.size());
+        assertEquals("甲甲甲甲。乙乙乙...", sentences.get(0).getContext());
+        assertEquals("...甲甲。乙乙乙乙。丙丙丙...", sentences.get(1).getContext());
+        assertEquals("...乙乙。丙丙丙丙。\n\n", sentences.get(2).getContext());
+    }
+
+    @Test
+    void testBoundaryNeedsFollowingText() {
+        List<WordProcessor.WordSentenceInfo> sentences = new ArrayList<>();
+        SentenceSplitter splitter = new SentenceSplitter(0, 1000, 10, 0, sentences::add);
+        splitter.addParagraph("版本号为1.2 。真的吗？！结束。  ");
+        splitter.finish();
+
+        List<String> contents = new ArrayList<>();
+        sentences.forEach(sentence -> contents.add(sentence.getContent()));
+        assertEquals(List.of("版本号为1.", "2 。", "真的吗？", "！", "结束。"), contents);
+    }
+
+    @Test
+    void testContextMatchesDocumentTextOverManyParagraphs() {
+        List<WordProcessor.WordSentenceInfo> sentences = new ArrayList<>();
+        int window = 20;
+        SentenceSplitter splitter = new SentenceSplitter(0, 1000, window, 0, sentences::add);
+        StringBuilder documentText = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            String paragraph = "第" + i + "段的第一句。第二句内容稍长一些" + "。".repeat(i % 3) + "末句";
+            splitter.addParagraph(paragraph);
+            documentText.append(paragraph).append("\n\n");
+        }
+        splitter.finish();
+
+        assertFalse(sentences.isEmpty());
+        for (WordProcessor.WordSentenceInfo sentence : sentences) {
+            assertEquals(sentence.getContent(),
+                    documentText.substring(sentence.getStartPosition(), sentence.getEndPosition() + 1));
+            int start = Math.max(0, sentence.getStartPosition() - window);
+            int end = Math.min(documentText.length(), sentence.getEndPosition() + 1 + window);
+            String expected = (start > 0 ? "..." : "") + documentText.substring(start, end)
+                    + (end < documentText.length() ? "..." : "");
+            assertEquals(expected, sentence.getContext());
+        }
+    }
+
+    @Test
+    void testLongSentenceIsSplitAtMaxLength() {
+        List<WordProcessor.WordSentenceInfo> sentences = new ArrayList<>();
+        SentenceSplitter splitter = new SentenceSplitter(0, 10, 5, 0, sentences::add);
+        String paragraph = "一二三四五六七八九十甲乙丙丁戊己，庚辛壬癸子丑。";
+        splitter.addParagraph(paragraph);
+        splitter.finish();
+
+        List<String> contents = new ArrayList<>();
+        sentences.forEach(sentence -> contents.add(sentence.getContent()));
+        assertEquals(List.of("一二三四五六七八九十", "甲乙丙丁戊己，", "庚辛壬癸子丑。"), contents);
+        for (WordProcessor.WordSentenceInfo sentence : sentences) {
+            assertEquals(sentence.getContent(),
+                    paragraph.substring(sentence.getStartPosition(), sentence.getEndPosition() + 1));
+        }
+    }
+
+    @Test
+    void testMergedSentenceDoesNotExceedMaxLength() {
+        List<WordProcessor.WordSentenceInfo> sentences = new ArrayList<>();
+        SentenceSplitter splitter = new SentenceSplitter(5, 10, 5, 0, sentences::add);
+        splitter.addParagraph("短句。");
+        splitter.addParagraph("这是一个九个字的句子。");
+        splitter.finish();
+
+        List<String> contents = new ArrayList<>();
+        sentences.forEach(sentence -> contents.add(sentence.getContent()));
+        assertEquals(List.of("短句。", "这是一个九个字的句子", "。"), contents);
+        assertTrue(sentences.stream().allMatch(sentence -> sentence.getContent().length() <= 10));
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.multidoc.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketRateLimiterTest {
+
+    @Test
+    void testAcquireWithinCapacityDoesNotBlock() throws InterruptedException {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(10, 10000);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 10; i++) {
+            limiter.acquire(500);
+        }
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(elapsedMs < 500, "桶容量内的请求不应等待，实际耗时: " + elapsedMs + "ms");
+    }
+
+    @Test
+    void testAcquireBlocksWhenRequestBucketIsEmpty() throws InterruptedException {
+        // 每分钟600次请求，即每100毫秒补充一次
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(600, 1000000);
+        for (int i = 0; i < 600; i++) {
+            limiter.acquire(1);
+        }
+
+        long start = System.nanoTime();
+        limiter.acquire(1);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(elapsedMs >= 50, "请求桶耗尽后应等待补充，实际耗时: " + elapsedMs + "ms");
+    }
+
+    @Test
+    void testAcquireBlocksWhenTokenBucketIsEmpty() throws InterruptedException {
+        // 每分钟60000个Token，即每毫秒补充一个
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(1000, 60000);
+        limiter.acquire(60000);
+
+        long start = System.nanoTime();
+        limiter.acquire(100);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(elapsedMs >= 50, "Token桶耗尽后应等待补充，实际耗时: " + elapsedMs + "ms");
+    }
+
+    @Test
+    void testEstimateTokens() {
+        assertEquals(0, TokenBucketRateLimiter.estimateTokens(null));
+        assertEquals(4, TokenBucketRateLimiter.estimateTokens("资产总计"));
+        assertEquals(2, TokenBucketRateLimiter.estimateTokens("abcdefgh"));
+    }
+
+    @Test
+    void testInvalidConfiguration() {
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucketRateLimiter(0, 1000));
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucketRateLimiter(10, -1));
+    }
+}